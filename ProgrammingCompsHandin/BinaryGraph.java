@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * A binary version of the input file, so a graph that is used for many runs only has to be parsed once (see GraphConverter).
+ *
+ * The file is a 24 byte header followed by the arrays of the graph, in the same order as the lines of the text file.
+ * Everything is little-endian:
+ *
+ *   bytes 0-3    the magic number "CSRG"
+ *   bytes 4-7    the version of the format (1)
+ *   bytes 8-11   the number of nodes n
+ *   bytes 12-15  the number of arcs m
+ *   bytes 16-23  unused (0)
+ *   int[n+1]     start indexes
+ *   int[m]       targets
+ *   int[m]       capacities
+ *   0 or 4 bytes padding, so the doubles start at a multiple of 8 bytes
+ *   double[m]    weights
+ *   double[n]    demands
+ *
+ * The file is memory-mapped and the arrays are copied straight out of the mapped buffers, so there is nothing to parse.
+ *
+ */
+public class BinaryGraph
+{
+	public static final int MAGIC = 0x47525343; // "CSRG" read as a little-endian int
+	public static final int VERSION = 1;
+	private static final int HEADER = 24;
+
+	private static final long PIECE = 1L << 30; // the most bytes to map at once
+
+	private int n_nodes;
+	private int n_arcs;
+	private int [] startIndex;
+	private int [] target;
+	private int [] capacity;
+	private double [] weights;
+	private double [] demand;
+
+
+	/**
+	 * Reads a binary graph file.
+	 *
+	 * @param f the file
+	 * @throws IOException if the file is not a binary graph of this version
+	 */
+	public BinaryGraph(File f) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		FileChannel fc = raf.getChannel();
+		try
+		{
+			if(fc.size() < HEADER)
+				throw new IOException("Not a binary graph file: " + f.getName());
+
+			ByteBuffer header = fc.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt(0) != MAGIC)
+				throw new IOException("Not a binary graph file: " + f.getName());
+			if(header.getInt(4) != VERSION)
+				throw new IOException("Binary graph file " + f.getName() + " is version " + header.getInt(4) + ", expected " + VERSION);
+
+			n_nodes = header.getInt(8);
+			n_arcs = header.getInt(12);
+			if(n_nodes < 0 || n_arcs < 0 || fc.size() != length(n_nodes, n_arcs))
+				throw new IOException("Binary graph file " + f.getName() + " has the wrong length for " + n_nodes + " nodes and " + n_arcs + " arcs");
+
+			long pos = HEADER;
+			startIndex = new int[n_nodes + 1];
+			pos = readInts(fc, pos, startIndex);
+			if(startIndex[n_nodes] != n_arcs)
+				throw new IOException("Binary graph file " + f.getName() + " has " + n_arcs + " arcs, but its last start index is " + startIndex[n_nodes]);
+			target = new int[n_arcs];
+			pos = readInts(fc, pos, target);
+			capacity = new int[n_arcs];
+			pos = readInts(fc, pos, capacity);
+
+			pos = align(pos);
+			weights = new double[n_arcs];
+			pos = readDoubles(fc, pos, weights);
+			demand = new double[n_nodes];
+			pos = readDoubles(fc, pos, demand);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param f a file
+	 * @return true if the file starts with the magic number of a binary graph
+	 */
+	public static boolean isBinary(File f)
+	{
+		try
+		{
+			DataInputStream dis = new DataInputStream(new FileInputStream(f));
+			try
+			{
+				return Integer.reverseBytes(dis.readInt()) == MAGIC;
+			}
+			finally
+			{
+				dis.close();
+			}
+		}
+		catch(IOException e)
+		{
+			return false; // too short, or cannot be read (which readFile will report)
+		}
+	}
+
+	/**
+	 * Writes a graph as a binary graph file.
+	 *
+	 * @param f the file to write
+	 * @param startIndex the start indexes of the arcs of each node, followed by the number of arcs
+	 * @param target the target node of each arc
+	 * @param capacity the capacity of each arc
+	 * @param weights the weight of each arc
+	 * @param demand the demand of each node
+	 * @throws IOException
+	 */
+	public static void write(File f, int [] startIndex, int [] target, int [] capacity, double [] weights, double [] demand) throws IOException
+	{
+		FileChannel fc = new FileOutputStream(f).getChannel();
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(demand.length).putInt(target.length).putLong(0);
+			header.flip();
+			write(fc, header);
+
+			ByteBuffer b = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			long pos = HEADER;
+			pos = writeInts(fc, b, pos, startIndex);
+			pos = writeInts(fc, b, pos, target);
+			pos = writeInts(fc, b, pos, capacity);
+
+			if(align(pos) != pos)
+			{
+				if(b.remaining() < 4)
+				{
+					b.flip();
+					write(fc, b);
+					b.clear();
+				}
+				b.putInt(0);
+			}
+			pos = align(pos);
+			pos = writeDoubles(fc, b, pos, weights);
+			pos = writeDoubles(fc, b, pos, demand);
+
+			b.flip();
+			write(fc, b);
+		}
+		finally
+		{
+			fc.close();
+		}
+	}
+
+	/**
+	 *
+	 * @return the length in bytes of a binary graph file with n nodes and m arcs
+	 */
+	private static long length(int n, int m)
+	{
+		return align(HEADER + 4L*(n + 1) + 8L*m) + 8L*m + 8L*n;
+	}
+
+	/**
+	 *
+	 * @return the next multiple of 8 bytes
+	 */
+	private static long align(long pos)
+	{
+		return (pos + 7) & ~7L;
+	}
+
+	private static long readInts(FileChannel fc, long pos, int [] a) throws IOException
+	{
+		int done = 0;
+		while(done < a.length)
+		{
+			int n = (int)Math.min(a.length - done, PIECE / 4);
+			fc.map(FileChannel.MapMode.READ_ONLY, pos, 4L*n).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(a, done, n);
+			done += n;
+			pos += 4L*n;
+		}
+
+		return pos;
+	}
+
+	private static long readDoubles(FileChannel fc, long pos, double [] a) throws IOException
+	{
+		int done = 0;
+		while(done < a.length)
+		{
+			int n = (int)Math.min(a.length - done, PIECE / 8);
+			fc.map(FileChannel.MapMode.READ_ONLY, pos, 8L*n).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(a, done, n);
+			done += n;
+			pos += 8L*n;
+		}
+
+		return pos;
+	}
+
+	private static long writeInts(FileChannel fc, ByteBuffer b, long pos, int [] a) throws IOException
+	{
+		for(int c = 0; c < a.length; c++)
+		{
+			if(b.remaining() < 4)
+			{
+				b.flip();
+				write(fc, b);
+				b.clear();
+			}
+			b.putInt(a[c]);
+		}
+
+		return pos + 4L*a.length;
+	}
+
+	private static long writeDoubles(FileChannel fc, ByteBuffer b, long pos, double [] a) throws IOException
+	{
+		for(int c = 0; c < a.length; c++)
+		{
+			if(b.remaining() < 8)
+			{
+				b.flip();
+				write(fc, b);
+				b.clear();
+			}
+			b.putDouble(a[c]);
+		}
+
+		return pos + 8L*a.length;
+	}
+
+	private static void write(FileChannel fc, ByteBuffer b) throws IOException
+	{
+		while(b.hasRemaining())
+			fc.write(b);
+	}
+
+
+
+	public int getNumNodes()
+	{
+		return n_nodes;
+	}
+
+	public int getNumArcs()
+	{
+		return n_arcs;
+	}
+
+	public int [] getStartIndex()
+	{
+		return startIndex;
+	}
+
+	public int [] getTarget()
+	{
+		return target;
+	}
+
+	public int [] getCapacity()
+	{
+		return capacity;
+	}
+
+	public double [] getWeights()
+	{
+		return weights;
+	}
+
+	public double [] getDemand()
+	{
+		return demand;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * A binary min-heap that works exactly the same way as CompsPriorityQueue, but on node ids, with each entry's key kept
+ * next to it in the heap. It breaks ties the same way, so dijkstra's algorithm finds the same tree as with the Nodes.
+ *
+ * Like CompsPriorityQueue, changeKey only moves a node up, even if its key got larger, so it only supports keys that get
+ * smaller: after a larger key, poll can return a node that does not have the smallest key.
+ *
+ */
+public class BinaryHeapQueue implements DijkstraQueue
+{
+	private int [] heap;
+	private double [] heapKey; // the key of the node at each position in the heap
+	private int [] heapIndex;
+	private int heapSize;
+
+
+	/**
+	 *
+	 * @param n the number of nodes in the graph
+	 */
+	public BinaryHeapQueue(int n)
+	{
+		heap = new int[n];
+		heapKey = new double[n];
+		heapIndex = new int[n];
+		heapSize = 0;
+	}
+
+	public void offer(int v, double key)
+	{
+		heapIndex[v] = heapSize;
+		heap[heapSize] = v;
+		heapKey[heapSize] = key;
+		heapSize++;
+
+		upHeap(v);
+	}
+
+	public void changeKey(int v, double key)
+	{
+		heapKey[heapIndex[v]] = key;
+		upHeap(v);
+	}
+
+	public int poll()
+	{
+		int head = heap[0];
+
+		// move the last heap item to the head
+		heap[0] = heap[heapSize - 1];
+		heapKey[0] = heapKey[heapSize - 1];
+		heapIndex[heap[0]] = 0;
+		downHeap(heap[0]);
+		heapSize--;
+
+		return head;
+	}
+
+	public boolean isEmpty()
+	{
+		return heapSize == 0;
+	}
+
+	public void clear()
+	{
+		heapSize = 0;
+	}
+
+	private void upHeap(int v)
+	{
+		double key = heapKey[heapIndex[v]];
+
+		int pre = (heapIndex[v] - 1)/2;
+		while(true)
+		{
+			if(heapIndex[v] == 0) // are we already at the head of the heap?
+				return;
+
+			if(!(key < heapKey[pre])) // has heap property
+				return;
+
+			exchange(heapIndex[v], pre);
+			pre = (heapIndex[v] - 1)/2;
+		}
+	}
+
+	private void downHeap(int v)
+	{
+		double key = heapKey[heapIndex[v]];
+		int descendant = heapIndex[v]*2 + 1;
+
+		while(descendant < heapSize)
+		{
+			if(descendant + 1 < heapSize) // is there a second descendant?
+			{
+				if(heapKey[descendant] > heapKey[descendant + 1])
+					descendant ++; // pick the descendant with the minimum distance
+			}
+
+			if(key < heapKey[descendant])
+				return; // has heap property
+
+			exchange(heapIndex[v], descendant);
+			descendant = descendant*2 + 1;
+		}
+	}
+
+	/**
+	 * Swap two positions of the heap. When poll moves the last node to the head, the node is still in the last position too
+	 * until the heap shrinks, and swapping it with itself does nothing (as in CompsPriorityQueue).
+	 */
+	private void exchange(int i, int j)
+	{
+		int a = heap[i];
+		int b = heap[j];
+		if(a == b)
+			return;
+
+		double ka = heapKey[i];
+		double kb = heapKey[j];
+
+		heap[i] = b;
+		heapKey[i] = kb;
+		heapIndex[b] = i;
+
+		heap[j] = a;
+		heapKey[j] = ka;
+		heapIndex[a] = j;
+	}
+}
@@ -1,3 +1,4 @@
+import java.io.*;
 import java.lang.management.*;
 
 /**
@@ -10,7 +11,22 @@ public class CompsMain
 	public static final boolean verbose = false;
 	
 	/**
-	 * The main method, which contains the code for dijkstra's algorithm.
+	 * The main method, which reads the input, runs dijkstra's algorithm and finds the max flow, and writes the output.
+	 * 
+	 * By default the nodes are kept in arrays (see DijkstraEngine). If the system property comps.engine is "nodes", 
+	 * the nodes are Node objects instead, and dijkstra's algorithm is the one below. The system property comps.queue 
+	 * picks the priority queue of the arrays (see DijkstraEngine.queue). It is "binary" by default, which finds the same 
+	 * flows as the Nodes. The other queues, and "auto" (which picks one by looking at the weights, see chooseQueue), find 
+	 * the same distances, but where two paths to a node are the same length they can pick the other one, so the flows can 
+	 * be different.
+	 * 
+	 * If comps.engine is "delta", the shortest paths are found by delta-stepping on several threads instead (see 
+	 * DeltaStepping; comps.threads sets how many, and comps.delta the width of the buckets). The elapsed time is then 
+	 * the wall clock time, since the CPU time of this thread would leave out the other threads.
+	 * 
+	 * Both of those engines find the max flow in one pass over the shortest path tree (see TreeFlow), unless 
+	 * comps.flow is "walk", which walks up from each leaf the same way as maxFlow below. With either of them, comps.demands 
+	 * can list demand files (separated by commas) to find the flows of more scenarios on the same tree (see requery).
 	 * 
 	 * @param args the input and the output files for this program
 	 */
@@ -23,23 +39,155 @@ public class CompsMain
 		// read in the file
 		FileIO io = new FileIO(args[0], args[1]);
 		
+		double startingtime;
+		double [] maxFlow;
+		MaxFlow tree = null; // the max flow of the shortest path tree, from the engines that keep the tree in arrays
+		String engineName = System.getProperty("comps.engine", "arrays");
 		
+		if(engineName.equals("nodes"))
+		{
+			//build nodes
+			Node[] nodes = io.buildNodes();
+			
+			// start timer
+			startingtime = time();
+			
+			if(verbose)
+				System.out.println("Starting timer...");
+			
+			maxFlow = dijkstra(io, nodes);
+		}
+		else if(engineName.equals("arrays"))
+		{
+			String name = System.getProperty("comps.queue", "binary");
+			if(name.equals("auto"))
+				name = chooseQueue(io.getWeights());
+			
+			if(verbose)
+				System.out.println("Using the " + name + " priority queue...");
+			
+			DijkstraQueue queue = DijkstraEngine.queue(name, io.getNumNodes(), io.getWeights());
+			DijkstraEngine engine = new DijkstraEngine(io.getStartIndex(), io.getTarget(), io.getWeights(), queue);
+			
+			// start timer
+			startingtime = time();
+			
+			if(verbose)
+				System.out.println("Starting timer...");
+			
+			if(verbose)
+				System.out.println("Starting dijkstra's algorithm ... ");
+			
+			int start = DijkstraEngine.findSupplyNode(io.getDemand());
+			engine.run(start);
+			
+			if(verbose)
+				System.out.println("Calculating max flows... ");
+			
+			tree = treeFlow(io, start, engine.getPredecessor(), engine.getPrevEdge());
+			maxFlow = tree.maxFlow(io.getCapacity(), io.getDemand());
+		}
+		else if(engineName.equals("delta"))
+		{
+			int threads = Integer.getInteger("comps.threads", Runtime.getRuntime().availableProcessors());
+			double delta = Double.parseDouble(System.getProperty("comps.delta", "0"));
+			DeltaStepping engine = new DeltaStepping(io.getStartIndex(), io.getTarget(), io.getWeights(), threads, delta);
+			
+			if(verbose)
+				System.out.println("Delta-stepping on " + threads + " threads with delta " + engine.getDelta() + "...");
+			
+			// start timer
+			startingtime = wallTime();
+			
+			int start = DijkstraEngine.findSupplyNode(io.getDemand());
+			engine.run(start);
+			tree = treeFlow(io, start, engine.getPredecessor(), engine.getPrevEdge());
+			maxFlow = tree.maxFlow(io.getCapacity(), io.getDemand());
+			engine.close();
+		}
+		else
+		{
+			System.err.println("Error: Unknown engine \"" + engineName + "\". Use arrays, nodes or delta.");
+			System.exit(1);
+			return;
+		}
+		
+		double elapsed = engineName.equals("delta") ? wallTime() - startingtime : time() - startingtime;
+		System.out.println("Elapsed time is : " + elapsed + " seconds");
 		
-		//build nodes
-		Node[] nodes = io.buildNodes();
+		if(verbose)
+			System.out.println("Writing output file...");
 		
+		// finally, set the flow
+		// Once the flow is set, the FileIO object will write the output.
+		io.setFlow(maxFlow);
 		
+		// the flows for the other demands, on the same tree
+		String demands = System.getProperty("comps.demands");
+		if(demands != null)
+		{
+			if(tree == null)
+			{
+				System.err.println("Error: comps.demands needs the arrays or the delta engine.");
+				System.exit(1);
+			}
+			requery(io, args[1], demands.split(","), tree);
+		}
 		
-		// build edges
-		int [] targets = io.getTarget();
-		double [] weights = io.getWeights();
+		if(tree != null)
+			tree.close();
 		
 		
-		// start timer
-		double startingtime = time();
 		
-		if(verbose)
-			System.out.println("Starting timer...");
+		
+	}
+	
+	
+	
+	/**
+	 * Finds the max flows for the demands of other scenarios, on the shortest path tree that was already found. The 
+	 * tree does not depend on the demands, so each scenario takes O(n) time instead of another run of dijkstra's 
+	 * algorithm. The flows of the scenarios are written to output.1, output.2, and so on, in the order of the files 
+	 * (see FileIO.readDemands for what a demand file can hold).
+	 * 
+	 * @param io the input graph
+	 * @param output the output file of the demands of the input file
+	 * @param files the demand files
+	 * @param tree the max flow of the shortest path tree
+	 */
+	public static void requery(FileIO io, String output, String [] files, MaxFlow tree)
+	{
+		int scenario = 0;
+		for(String f : files)
+		{
+			double [][] demands = io.readDemands(new File(f));
+			for(double [] d : demands)
+			{
+				scenario++;
+				
+				double startingtime = time();
+				double [] flow = tree.maxFlow(io.getCapacity(), d);
+				System.out.println("Scenario " + scenario + " (" + f + "): elapsed time is : " + (time() - startingtime) + " seconds");
+				
+				io.writeFlow(new File(output + "." + scenario), flow);
+			}
+		}
+	}
+	
+	
+	
+	/**
+	 * Dijkstra's algorithm on the Nodes, followed by the max flow.
+	 * 
+	 * @param io the input graph
+	 * @param nodes the Nodes of the graph, as built by io
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public static double[] dijkstra(FileIO io, Node[] nodes)
+	{
+		// build edges
+		int [] targets = io.getTarget();
+		double [] weights = io.getWeights();
 		
 		// find starting node
 		Node start = findSupplyNode(nodes); // find starting node
@@ -132,18 +280,7 @@ public class CompsMain
 		//find lambda and the flows
 		double [] maxFlow = maxFlow(io.getCapacity(), nodes);
 		
-		System.out.println("Elapsed time is : " + (time() - startingtime) + " seconds");
-		
-		if(verbose)
-			System.out.println("Writing output file...");
-		
-		// finally, set the flow
-		// Once the flow is set, the FileIO object will write the output.
-		io.setFlow(maxFlow);
-		
-		
-		
-		
+		return maxFlow;
 	}
 	
 	
@@ -159,6 +296,16 @@ public class CompsMain
 	
 	
 	
+	/**
+	 * Returns the wall clock time, in seconds, for timing the engines that use several threads.
+	 * 
+	 * @return the current time, in seconds
+	 */
+	public static double wallTime()
+	{
+		return System.nanoTime() / 1e9;
+	}
+	
 	/**
 	 * Returns the amount of time (in seconds) that this thread has been running. Since this is not a multi-threaded 
 	 * application, we can use this as a CPU timer for this program.
@@ -191,6 +338,40 @@ public class CompsMain
 	
 	
 	
+	/**
+	 * The max flow on a shortest path tree, found with TreeFlow, or with DijkstraEngine.maxFlow if the system property 
+	 * comps.flow is "walk".
+	 * 
+	 * @param io the input graph
+	 * @param start the supply node
+	 * @param predecessor the node before each node in the tree
+	 * @param prevEdge the arc into each node in the tree
+	 * @return the max flow of the tree, for any demands
+	 */
+	public static MaxFlow treeFlow(FileIO io, final int start, final int [] predecessor, final int [] prevEdge)
+	{
+		if(System.getProperty("comps.flow", "tree").equals("walk"))
+		{
+			return new MaxFlow() {
+				public double [] maxFlow(int [] capacity, double [] demand)
+				{
+					return DijkstraEngine.maxFlow(capacity, demand, start, predecessor, prevEdge);
+				}
+				
+				public void close()
+				{
+				}
+			};
+		}
+		
+		int threads = Integer.getInteger("comps.threads", Runtime.getRuntime().availableProcessors());
+		return new TreeFlow(start, predecessor, prevEdge, threads);
+	}
+	
+	
+	
+	
+	
 	/**
 	 * Traces back through the previous nodes and paths in order to find the max flow for each arc.
 	 * 
@@ -248,6 +429,32 @@ public class CompsMain
 	
 	
 	
+	/**
+	 * Picks the priority queue for the weights of a graph, for comps.queue=auto. Dijkstra's algorithm only ever polls keys that are at least as 
+	 * large as the last one, so if no weight is negative a monotone queue can be used: Dial's buckets if the weights are 
+	 * small whole numbers, and otherwise a radix heap. If there are negative weights, it is the binary heap.
+	 * 
+	 * The monotone queues find the same distances as the binary heap, but when two paths to a node are the same length 
+	 * they may pick the other one, so the flows can be different (comps.queue=binary always gives the same flows as 
+	 * the Nodes).
+	 * 
+	 * @param weights the weight of each arc
+	 * @return "dial", "radix" or "binary"
+	 */
+	public static String chooseQueue(double [] weights)
+	{
+		if(DijkstraEngine.maxWholeWeight(weights) >= 0)
+			return "dial";
+		else if(DijkstraEngine.minWeight(weights) >= 0)
+			return "radix";
+		else
+			return "binary";
+	}
+	
+	
+	
+	
+	
 	/**
 	 * Find the supply node (the start node) of the graph. The supply node is the node that has a demand of -1.
 	 * 
@@ -0,0 +1,127 @@
+/**
+ * An indexed min-heap where each entry has four children instead of two. The heap is half as deep as a binary heap, and
+ * the four children of an entry are next to each other in memory, so a poll touches fewer cache lines even though it
+ * compares more keys at each level. Each entry's key is kept next to it in the heap.
+ *
+ */
+public class DaryHeapQueue implements DijkstraQueue
+{
+	private static final int D = 4; // the number of children of each entry
+
+	private int [] heap;
+	private double [] heapKey; // the key of the node at each position in the heap
+	private int [] heapIndex;
+	private int heapSize;
+
+
+	/**
+	 *
+	 * @param n the number of nodes in the graph
+	 */
+	public DaryHeapQueue(int n)
+	{
+		heap = new int[n];
+		heapKey = new double[n];
+		heapIndex = new int[n];
+		heapSize = 0;
+	}
+
+	public void offer(int v, double key)
+	{
+		upHeap(v, key, heapSize);
+		heapSize++;
+	}
+
+	public void changeKey(int v, double key)
+	{
+		int i = heapIndex[v];
+		if(key < heapKey[i])
+			upHeap(v, key, i);
+		else
+			downHeap(v, key, i);
+	}
+
+	public int poll()
+	{
+		int head = heap[0];
+
+		heapSize--;
+		if(heapSize > 0)
+			downHeap(heap[heapSize], heapKey[heapSize], 0);
+
+		return head;
+	}
+
+	public boolean isEmpty()
+	{
+		return heapSize == 0;
+	}
+
+	public void clear()
+	{
+		heapSize = 0;
+	}
+
+	/**
+	 * Put a node at position i, or above it if its key is smaller than its parents'. The entries on the way are moved
+	 * down instead of being swapped.
+	 */
+	private void upHeap(int v, double key, int i)
+	{
+		while(i > 0)
+		{
+			int parent = (i - 1) / D;
+			if(!(key < heapKey[parent]))
+				break;
+
+			move(parent, i);
+			i = parent;
+		}
+
+		put(v, key, i);
+	}
+
+	/**
+	 * Put a node at position i, or below it if its key is larger than its children's.
+	 */
+	private void downHeap(int v, double key, int i)
+	{
+		while(true)
+		{
+			int first = i*D + 1;
+			if(first >= heapSize)
+				break;
+
+			// pick the child with the smallest key
+			int min = first;
+			int last = Math.min(first + D, heapSize);
+			for(int c = first + 1; c < last; c++)
+			{
+				if(heapKey[c] < heapKey[min])
+					min = c;
+			}
+
+			if(!(heapKey[min] < key))
+				break;
+
+			move(min, i);
+			i = min;
+		}
+
+		put(v, key, i);
+	}
+
+	private void move(int from, int to)
+	{
+		heap[to] = heap[from];
+		heapKey[to] = heapKey[from];
+		heapIndex[heap[to]] = to;
+	}
+
+	private void put(int v, double key, int i)
+	{
+		heap[i] = v;
+		heapKey[i] = key;
+		heapIndex[v] = i;
+	}
+}
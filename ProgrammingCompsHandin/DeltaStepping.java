@@ -0,0 +1,502 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Shortest paths by delta-stepping, on several threads. The nodes are put in buckets by their distance, each bucket
+ * holding the distances from i*delta up to (i+1)*delta. The lowest bucket that is not empty is emptied over and over by
+ * relaxing the light arcs (weight at most delta) of all of its nodes at once, since those can put nodes back into the same
+ * bucket; then the heavy arcs of every node that was in the bucket are relaxed once, which can only put nodes in higher
+ * buckets. The arcs of a bucket are relaxed by fork-join tasks, and a distance is only ever lowered by a compare-and-set,
+ * so two threads relaxing arcs into the same node do not lose either update.
+ *
+ * A distance is kept as the bits of the double (see Double.doubleToLongBits), since the bits of non-negative doubles are
+ * in the same order as the doubles. Like dijkstra's algorithm in CompsMain, a node starts with a distance of
+ * Integer.MAX_VALUE, and a node that cannot get closer than that is never reached.
+ *
+ * The distances are the same ones that dijkstra's algorithm finds. Since the threads can lower a distance in any order, the
+ * shortest path tree is found afterwards: starting from the supply node, one level at a time, each node is given the
+ * lowest numbered arc from the level before it that is on a shortest path to it. So the tree is the same on every run and
+ * with any number of threads, but where two paths are the same length it can be a different one than dijkstra's algorithm
+ * picks.
+ *
+ * This needs Java 7 (for java.util.concurrent.ForkJoinPool).
+ *
+ */
+public class DeltaStepping
+{
+	private static final int GRAIN = 1024; // the fewest arcs worth giving to a task of their own
+	private static final long UNREACHED = Double.doubleToLongBits(Integer.MAX_VALUE);
+
+	// the graph
+	private int n_nodes;
+	private int [] startIndex;
+	private int [] target;
+	private double [] weights;
+
+	private double delta;
+	private ForkJoinPool pool;
+
+	private AtomicLongArray dist;
+	private double [] distance;
+	private int [] predecessor; // -1 if there is none
+	private int [] prevEdge; // -1 if there is none
+	private int start; // the supply node of the last run
+
+
+	/**
+	 *
+	 * @param startIndex the start index of the arcs of each node, followed by the number of arcs
+	 * @param target the target node of each arc
+	 * @param weights the weight of each arc, none of them negative
+	 * @param threads the number of threads to relax arcs with
+	 * @param delta the width of a bucket, or 0 to pick it from the weights (see autoDelta)
+	 */
+	public DeltaStepping(int [] startIndex, int [] target, double [] weights, int threads, double delta)
+	{
+		this.startIndex = startIndex;
+		this.target = target;
+		this.weights = weights;
+		n_nodes = startIndex.length - 1;
+
+		if(!(DijkstraEngine.minWeight(weights) >= 0))
+		{
+			System.err.println("Error: Delta-stepping needs weights that are not negative.");
+			System.exit(1);
+		}
+
+		this.delta = (delta > 0) ? delta : autoDelta(startIndex, weights);
+		pool = new ForkJoinPool(threads);
+
+		dist = new AtomicLongArray(n_nodes);
+		distance = new double[n_nodes];
+		predecessor = new int[n_nodes];
+		prevEdge = new int[n_nodes];
+	}
+
+	/**
+	 * Picks delta from the weights. A bucket should be wide enough that there is work for all of the threads in it, but
+	 * narrow enough that few of the nodes in it still get a lower distance later. For weights spread evenly from 0 to
+	 * the largest weight, about one arc of each node is then light, so this picks the largest weight divided by the
+	 * average number of arcs out of a node (but never less than the smallest weight that is not 0).
+	 *
+	 * @param startIndex the start index of the arcs of each node, followed by the number of arcs
+	 * @param weights the weight of each arc
+	 * @return delta
+	 */
+	public static double autoDelta(int [] startIndex, double [] weights)
+	{
+		double max = 0, minPositive = Double.MAX_VALUE;
+		for(int c = 0; c < weights.length; c++)
+		{
+			if(weights[c] > max)
+				max = weights[c];
+			if(weights[c] > 0 && weights[c] < minPositive)
+				minPositive = weights[c];
+		}
+		if(max == 0 || Double.isInfinite(max))
+			return 1;
+
+		double degree = Math.max(1.0, (double)weights.length / Math.max(1, startIndex.length - 1));
+		return Math.max(max / degree, minPositive);
+	}
+
+	/**
+	 *
+	 * @return the width of a bucket
+	 */
+	public double getDelta()
+	{
+		return delta;
+	}
+
+	/**
+	 * Find the shortest paths from the supply node to every node, and a shortest path tree.
+	 *
+	 * @param start the supply node
+	 */
+	public void run(int start)
+	{
+		this.start = start;
+		for(int v = 0; v < n_nodes; v++)
+			dist.set(v, UNREACHED);
+		dist.set(start, 0L);
+
+		TreeMap<Long, IntList> buckets = new TreeMap<Long, IntList>();
+		int [] seen = new int[n_nodes]; // the last phase each node was taken from a bucket in, to skip copies
+		Arrays.fill(seen, -1);
+		int phase = 0;
+
+		add(buckets, start);
+		while(!buckets.isEmpty())
+		{
+			long i = buckets.firstKey();
+			IntList settled = new IntList();
+
+			// relax the light arcs until nothing more is put in this bucket
+			while(buckets.containsKey(i))
+			{
+				IntList frontier = new IntList();
+				IntList b = buckets.remove(i);
+				for(int k = 0; k < b.size(); k++)
+				{
+					int v = b.get(k);
+					if(seen[v] != phase && bucket(dist.get(v)) == i) // not a copy, and not since moved to a lower bucket
+					{
+						seen[v] = phase;
+						frontier.add(v);
+					}
+				}
+				phase++;
+
+				settled.addAll(frontier);
+				IntList lowered = relax(frontier, true);
+				for(int k = 0; k < lowered.size(); k++)
+					add(buckets, lowered.get(k));
+			}
+
+			// then the heavy arcs of everything that was in the bucket
+			IntList once = new IntList();
+			for(int k = 0; k < settled.size(); k++)
+			{
+				int v = settled.get(k);
+				if(seen[v] != phase)
+				{
+					seen[v] = phase;
+					once.add(v);
+				}
+			}
+			phase++;
+
+			IntList lowered = relax(once, false);
+			for(int k = 0; k < lowered.size(); k++)
+				add(buckets, lowered.get(k));
+		}
+
+		for(int v = 0; v < n_nodes; v++)
+			distance[v] = Double.longBitsToDouble(dist.get(v));
+
+		buildTree();
+	}
+
+	/**
+	 * Put a node in the bucket for its distance.
+	 */
+	private void add(TreeMap<Long, IntList> buckets, int v)
+	{
+		long i = bucket(dist.get(v));
+		IntList b = buckets.get(i);
+		if(b == null)
+		{
+			b = new IntList();
+			buckets.put(i, b);
+		}
+		b.add(v);
+	}
+
+	private long bucket(long bits)
+	{
+		return (long)(Double.longBitsToDouble(bits) / delta);
+	}
+
+	/**
+	 * Relax the light or the heavy arcs of some nodes on the threads.
+	 *
+	 * @return the nodes whose distance was lowered (some of them more than once)
+	 */
+	private IntList relax(IntList nodes, boolean light)
+	{
+		if(nodes.size() == 0)
+			return nodes;
+
+		return pool.invoke(new Relax(nodes.toArray(), 0, nodes.size(), light));
+	}
+
+	/**
+	 * Relaxes the arcs of a range of nodes, splitting the range in half while it has many arcs.
+	 */
+	@SuppressWarnings("serial")
+	private class Relax extends RecursiveTask<IntList>
+	{
+		private int [] nodes;
+		private int from, to;
+		private boolean light;
+
+		public Relax(int [] nodes, int from, int to, boolean light)
+		{
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		protected IntList compute()
+		{
+			if(to - from > 1 && arcs() > GRAIN)
+			{
+				int mid = (from + to) >>> 1;
+				Relax left = new Relax(nodes, from, mid, light);
+				left.fork();
+				IntList lowered = new Relax(nodes, mid, to, light).compute();
+				lowered.addAll(left.join());
+				return lowered;
+			}
+
+			IntList lowered = new IntList();
+			for(int k = from; k < to; k++)
+			{
+				int v = nodes[k];
+				double dv = Double.longBitsToDouble(dist.get(v));
+				for(int c = startIndex[v]; c < startIndex[v + 1]; c++)
+				{
+					if((weights[c] <= delta) != light)
+						continue;
+
+					int w = target[c];
+					long nd = Double.doubleToLongBits(dv + weights[c] + 0.0); // + 0.0 makes -0.0 into 0.0
+					while(true)
+					{
+						long old = dist.get(w);
+						if(nd >= old)
+							break;
+						if(dist.compareAndSet(w, old, nd))
+						{
+							lowered.add(w);
+							break;
+						}
+					}
+				}
+			}
+
+			return lowered;
+		}
+
+		private long arcs()
+		{
+			long arcs = 0;
+			for(int k = from; k < to && arcs <= GRAIN; k++)
+				arcs += startIndex[nodes[k] + 1] - startIndex[nodes[k]];
+			return arcs;
+		}
+	}
+
+	/**
+	 * Find a shortest path tree, one level at a time from the supply node, using only the arcs where the distance of the
+	 * target is the distance of the source plus the weight.
+	 */
+	private void buildTree()
+	{
+		final AtomicIntegerArray level = new AtomicIntegerArray(n_nodes);
+		final AtomicIntegerArray edge = new AtomicIntegerArray(n_nodes);
+		for(int v = 0; v < n_nodes; v++)
+		{
+			level.set(v, -1);
+			edge.set(v, Integer.MAX_VALUE);
+		}
+		level.set(start, 0);
+
+		IntList frontier = new IntList();
+		frontier.add(start);
+		for(int l = 0; frontier.size() > 0; l++)
+		{
+			IntList next = pool.invoke(new Tighten(frontier.toArray(), 0, frontier.size(), l + 1, level, edge));
+
+			// the predecessor is the source of the arc
+			for(int k = 0; k < next.size(); k++)
+			{
+				int v = next.get(k);
+				prevEdge[v] = edge.get(v);
+				predecessor[v] = source(prevEdge[v]);
+			}
+			frontier = next;
+		}
+
+		for(int v = 0; v < n_nodes; v++)
+		{
+			if(level.get(v) == -1 || v == start)
+			{
+				predecessor[v] = -1;
+				prevEdge[v] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Finds the nodes of the next level of the tree from a range of the nodes of this level.
+	 */
+	@SuppressWarnings("serial")
+	private class Tighten extends RecursiveTask<IntList>
+	{
+		private int [] nodes;
+		private int from, to;
+		private int next; // the number of the next level
+		private AtomicIntegerArray level, edge;
+
+		public Tighten(int [] nodes, int from, int to, int next, AtomicIntegerArray level, AtomicIntegerArray edge)
+		{
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.next = next;
+			this.level = level;
+			this.edge = edge;
+		}
+
+		protected IntList compute()
+		{
+			if(to - from > GRAIN / 8)
+			{
+				int mid = (from + to) >>> 1;
+				Tighten left = new Tighten(nodes, from, mid, next, level, edge);
+				left.fork();
+				IntList found = new Tighten(nodes, mid, to, next, level, edge).compute();
+				found.addAll(left.join());
+				return found;
+			}
+
+			IntList found = new IntList();
+			for(int k = from; k < to; k++)
+			{
+				int u = nodes[k];
+				for(int c = startIndex[u]; c < startIndex[u + 1]; c++)
+				{
+					int w = target[c];
+					if(distance[u] + weights[c] + 0.0 != distance[w] || distance[w] == Integer.MAX_VALUE)
+						continue;
+
+					int l = level.get(w);
+					if(l == -1 && level.compareAndSet(w, -1, next))
+					{
+						found.add(w);
+						l = next;
+					}
+					else if(l == -1)
+						l = level.get(w);
+
+					// keep the lowest numbered arc into w from this level
+					if(l == next)
+					{
+						while(true)
+						{
+							int e = edge.get(w);
+							if(c >= e || edge.compareAndSet(w, e, c))
+								break;
+						}
+					}
+				}
+			}
+
+			return found;
+		}
+	}
+
+	/**
+	 *
+	 * @return the node that an arc comes out of
+	 */
+	private int source(int c)
+	{
+		// the last node whose arcs start at or before c
+		int lo = 0, hi = n_nodes - 1;
+		while(lo < hi)
+		{
+			int mid = (lo + hi + 1) >>> 1;
+			if(startIndex[mid] <= c)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+
+		return lo;
+	}
+
+	/**
+	 * The max flow on the shortest path tree (see DijkstraEngine.maxFlow). The demands are not changed.
+	 *
+	 * @param capacity an integer array containing the capacities for each of the arcs
+	 * @param demand the demand of each node
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public double [] maxFlow(int [] capacity, double [] demand)
+	{
+		return DijkstraEngine.maxFlow(capacity, demand, start, predecessor, prevEdge);
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void close()
+	{
+		pool.shutdown();
+	}
+
+
+
+	/**
+	 *
+	 * @return the distance from the supply node to each node
+	 */
+	public double [] getDistance()
+	{
+		return distance;
+	}
+
+	/**
+	 *
+	 * @return the node before each node on its shortest path, or -1 for the supply node
+	 */
+	public int [] getPredecessor()
+	{
+		return predecessor;
+	}
+
+	/**
+	 *
+	 * @return the arc into each node on its shortest path, or -1 for the supply node
+	 */
+	public int [] getPrevEdge()
+	{
+		return prevEdge;
+	}
+
+
+
+	/**
+	 * A growable list of ints, for the buckets and the nodes found by the tasks.
+	 */
+	private static class IntList
+	{
+		private int [] items = new int[8];
+		private int size;
+
+		public void add(int v)
+		{
+			if(size == items.length)
+				items = Arrays.copyOf(items, size*2);
+			items[size++] = v;
+		}
+
+		public void addAll(IntList l)
+		{
+			if(size + l.size > items.length)
+				items = Arrays.copyOf(items, Math.max(size + l.size, size*2));
+			System.arraycopy(l.items, 0, items, size, l.size);
+			size += l.size;
+		}
+
+		public int size()
+		{
+			return size;
+		}
+
+		public int [] toArray()
+		{
+			return Arrays.copyOf(items, size);
+		}
+
+		public int get(int i)
+		{
+			return items[i];
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Dial's bucket queue, for graphs where every weight is a whole number from 0 to some small maximum C. Every key in the
+ * queue is between the last key polled and that key plus C, so C + 1 buckets used in a circle are enough, one for each
+ * key. Offering a node and changing its key take constant time, and polls walk forward through the buckets, so a whole
+ * run of dijkstra's algorithm takes O(m + n + the largest distance) time.
+ *
+ * The buckets are doubly linked lists in arrays, so a node can be taken out of its bucket when its key changes.
+ *
+ */
+public class DialQueue implements DijkstraQueue
+{
+	private long [] key;
+	private int [] next;
+	private int [] prev;
+
+	private int [] head; // the first node in each bucket, or -1
+	private long current; // the smallest key that can still be in the queue
+	private int size;
+
+
+	/**
+	 *
+	 * @param n the number of nodes in the graph
+	 * @param maxWeight the largest weight of an arc, which must be a whole number
+	 */
+	public DialQueue(int n, int maxWeight)
+	{
+		key = new long[n];
+		next = new int[n];
+		prev = new int[n];
+		head = new int[maxWeight + 1];
+		clear();
+	}
+
+	public void offer(int v, double k)
+	{
+		key[v] = (long)k;
+		insert(v);
+		size++;
+	}
+
+	public void changeKey(int v, double k)
+	{
+		remove(v);
+		key[v] = (long)k;
+		insert(v);
+	}
+
+	public int poll()
+	{
+		int b = (int)(current % head.length);
+		while(head[b] == -1)
+		{
+			current++;
+			b++;
+			if(b == head.length)
+				b = 0;
+		}
+
+		int v = head[b];
+		remove(v);
+		size--;
+
+		return v;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		for(int b = 0; b < head.length; b++)
+			head[b] = -1;
+		current = 0;
+		size = 0;
+	}
+
+	private void insert(int v)
+	{
+		int b = (int)(key[v] % head.length);
+
+		prev[v] = -1;
+		next[v] = head[b];
+		if(head[b] != -1)
+			prev[head[b]] = v;
+		head[b] = v;
+	}
+
+	private void remove(int v)
+	{
+		int b = (int)(key[v] % head.length);
+
+		if(prev[v] != -1)
+			next[prev[v]] = next[v];
+		else
+			head[b] = next[v];
+		if(next[v] != -1)
+			prev[next[v]] = prev[v];
+	}
+}
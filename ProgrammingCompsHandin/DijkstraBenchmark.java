@@ -0,0 +1,149 @@
+import java.util.*;
+
+/**
+ * Times dijkstra's algorithm and the max flow on the Nodes (CompsMain.dijkstra) against the same thing on arrays
+ * (DijkstraEngine) with each of the priority queues, on one input graph. It checks that the Nodes and the binary heap find
+ * the same flows, and that every queue finds the same distances. Then it times delta-stepping (see DeltaStepping) on 1 to
+ * N threads, and shows the speedup over one thread.
+ *
+ * Usage: java DijkstraBenchmark input [runs] [queue,queue,...] [N]
+ *
+ * Each engine is run a few times first so that the JIT has compiled it, and then the given number of times (5 by default).
+ * The time to build the Nodes or the arrays is shown separately from the time to run.
+ *
+ */
+public class DijkstraBenchmark
+{
+	private static final int WARMUP = 3;
+
+
+	public static void main(String[] args)
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: java DijkstraBenchmark input [runs] [queue,queue,...] [N]");
+			System.exit(1);
+		}
+		int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+		FileIO io = new FileIO(args[0]);
+		System.out.println(io.getNumNodes() + " nodes, " + io.getNumArcs() + " arcs");
+
+		String all = "binary,dary,pairing";
+		if(!CompsMain.chooseQueue(io.getWeights()).equals("binary"))
+			all += ",radix";
+		if(CompsMain.chooseQueue(io.getWeights()).equals("dial"))
+			all += ",dial";
+		String [] queues = ((args.length > 2) ? args[2] : all).split(",");
+
+		double [] nodeFlow = null;
+		long [] nodeBuild = new long[runs], nodeRun = new long[runs];
+		for(int r = -WARMUP; r < runs; r++)
+		{
+			long t0 = System.nanoTime();
+			Node[] nodes = io.buildNodes();
+			long t1 = System.nanoTime();
+			nodeFlow = CompsMain.dijkstra(io, nodes);
+			long t2 = System.nanoTime();
+
+			if(r >= 0)
+			{
+				nodeBuild[r] = t1 - t0;
+				nodeRun[r] = t2 - t1;
+			}
+		}
+
+		System.out.println("               build (ms)   run (ms)");
+		print("nodes", nodeBuild, nodeRun);
+
+		double [] distance = null;
+		for(String q : queues)
+		{
+			DijkstraEngine engine = null;
+			double [] flow = null;
+			long [] build = new long[runs], run = new long[runs];
+			for(int r = -WARMUP; r < runs; r++)
+			{
+				long t0 = System.nanoTime();
+				engine = new DijkstraEngine(io.getStartIndex(), io.getTarget(), io.getWeights(), DijkstraEngine.queue(q, io.getNumNodes(), io.getWeights()));
+				long t1 = System.nanoTime();
+				engine.run(DijkstraEngine.findSupplyNode(io.getDemand()));
+				flow = engine.maxFlow(io.getCapacity(), io.getDemand());
+				long t2 = System.nanoTime();
+
+				if(r >= 0)
+				{
+					build[r] = t1 - t0;
+					run[r] = t2 - t1;
+				}
+			}
+
+			if(q.equals("binary") && !Arrays.equals(nodeFlow, flow))
+			{
+				System.err.println("Error: the Nodes and the binary heap found different flows.");
+				System.exit(2);
+			}
+			if(distance == null)
+				distance = engine.getDistance().clone();
+			else if(!Arrays.equals(distance, engine.getDistance()))
+			{
+				System.err.println("Error: the " + q + " queue found different distances.");
+				System.exit(2);
+			}
+
+			print(q, build, run);
+		}
+
+		// delta-stepping on more and more threads
+		if(DijkstraEngine.minWeight(io.getWeights()) >= 0)
+		{
+			int maxThreads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			long one = 0;
+			for(int t = 1; t <= maxThreads; t++)
+			{
+				DeltaStepping engine = new DeltaStepping(io.getStartIndex(), io.getTarget(), io.getWeights(), t, 0);
+				if(t == 1)
+					System.out.println("delta-stepping, delta = " + engine.getDelta() + "\nthreads        run (ms)    speedup");
+
+				long [] run = new long[runs];
+				for(int r = -WARMUP; r < runs; r++)
+				{
+					long t0 = System.nanoTime();
+					engine.run(DijkstraEngine.findSupplyNode(io.getDemand()));
+					engine.maxFlow(io.getCapacity(), io.getDemand());
+					long t1 = System.nanoTime();
+
+					if(r >= 0)
+						run[r] = t1 - t0;
+				}
+				engine.close();
+
+				if(distance != null && !Arrays.equals(distance, engine.getDistance()))
+				{
+					System.err.println("Error: delta-stepping on " + t + " threads found different distances.");
+					System.exit(2);
+				}
+
+				if(t == 1)
+					one = median(run);
+				System.out.printf("%-12d %10.1f %9.2fx%n", t, median(run) / 1e6, (double)one / median(run));
+			}
+		}
+	}
+
+	private static void print(String name, long [] build, long [] run)
+	{
+		System.out.printf("%-12s %10.1f %10.1f%n", name, median(build) / 1e6, median(run) / 1e6);
+	}
+
+	/**
+	 *
+	 * @return the median of the times
+	 */
+	private static long median(long [] times)
+	{
+		long [] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,378 @@
+/**
+ * Dijkstra's algorithm and the max flow, with everything about the nodes kept in arrays indexed by the node id instead of
+ * in Node objects. The distance, predecessor, previous edge and flags of the nodes are each in their own array, and the
+ * priority queue is any DijkstraQueue (see queue()).
+ *
+ * With a BinaryHeapQueue this does exactly what CompsMain does with Nodes and the CompsPriorityQueue (including the order
+ * that the heap breaks ties in and the order that the demands are added up), so it finds the same distances, tree and
+ * flows. Other queues find the same distances, but when two paths to a node are the same length they may pick the other
+ * one.
+ *
+ */
+public class DijkstraEngine
+{
+	// the flags of a node
+	private static final byte IN_S = 1; // in the set of explored nodes
+	private static final byte IN_Q = 2; // in the priority queue
+	private static final byte NOT_LEAF = 4; // the predecessor of an explored node
+
+	public static final int DIAL_MAX = 1 << 16; // the largest weight that the dial queue will take
+
+	// the graph
+	private int n_nodes;
+	private int [] startIndex;
+	private int [] target;
+	private double [] weights;
+
+	// the nodes
+	private double [] distance;
+	private int [] predecessor; // -1 if there is none
+	private int [] prevEdge; // -1 if there is none
+	private byte [] flags;
+	private int start; // the supply node of the last run
+
+	private DijkstraQueue queue;
+
+
+	/**
+	 * An engine with a BinaryHeapQueue.
+	 *
+	 * @param startIndex the start index of the arcs of each node, followed by the number of arcs
+	 * @param target the target node of each arc
+	 * @param weights the weight of each arc
+	 */
+	public DijkstraEngine(int [] startIndex, int [] target, double [] weights)
+	{
+		this(startIndex, target, weights, new BinaryHeapQueue(startIndex.length - 1));
+	}
+
+	/**
+	 *
+	 * @param startIndex the start index of the arcs of each node, followed by the number of arcs
+	 * @param target the target node of each arc
+	 * @param weights the weight of each arc
+	 * @param queue the priority queue to use, with room for all of the nodes
+	 */
+	public DijkstraEngine(int [] startIndex, int [] target, double [] weights, DijkstraQueue queue)
+	{
+		this.queue = queue;
+		this.startIndex = startIndex;
+		this.target = target;
+		this.weights = weights;
+		n_nodes = startIndex.length - 1;
+
+		distance = new double[n_nodes];
+		predecessor = new int[n_nodes];
+		prevEdge = new int[n_nodes];
+		flags = new byte[n_nodes];
+	}
+
+	/**
+	 * Find the shortest paths from the supply node to every node.
+	 *
+	 * @param start the supply node
+	 */
+	public void run(int start)
+	{
+		for(int v = 0; v < n_nodes; v++)
+		{
+			distance[v] = Integer.MAX_VALUE;
+			predecessor[v] = -1;
+			prevEdge[v] = -1;
+			flags[v] = 0;
+		}
+		queue.clear();
+		this.start = start;
+
+		distance[start] = 0;
+		flags[start] |= IN_S;
+
+		// update the min distance, and set predecessor and previous edge for nodes connected to the start
+		for(int c = startIndex[start]; c < startIndex[start + 1]; c++)
+		{
+			int v = target[c];
+			if((flags[v] & IN_S) == 0) // in case there is an arc that connects back to the start node
+			{
+				prevEdge[v] = c;
+				predecessor[v] = start;
+				distance[v] = weights[c];
+
+				if((flags[v] & IN_Q) == 0)
+				{
+					flags[v] |= IN_Q;
+					queue.offer(v, distance[v]);
+				}
+				else
+					queue.changeKey(v, distance[v]);
+			}
+		}
+
+		// dijsktra's algorithm
+		while(!queue.isEmpty())
+		{
+			int v = queue.poll(); // choose the unexplored node with the closest distance to the start node
+			flags[v] = (byte)((flags[v] & ~IN_Q) | IN_S);
+
+			// now we know for sure that v's predecessor is not a leaf
+			if(predecessor[v] != -1)
+				flags[predecessor[v]] |= NOT_LEAF;
+			else
+			{
+				System.out.println("Error: Graph is not connected.");
+				System.exit(2);
+			}
+
+			double dv = distance[v];
+			int end = startIndex[v + 1];
+			for(int c = startIndex[v]; c < end; c++)
+			{
+				int w = target[c];
+				double dw = dv + weights[c];
+
+				// if a node is not already explored and now has a shorter path to the supply node through v
+				if((flags[w] & IN_S) == 0 && distance[w] > dw)
+				{
+					predecessor[w] = v;
+					prevEdge[w] = c;
+					distance[w] = dw;
+
+					if((flags[w] & IN_Q) == 0)
+					{
+						flags[w] |= IN_Q;
+						queue.offer(w, dw);
+					}
+					else
+						queue.changeKey(w, dw);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Traces back through the previous nodes and paths in order to find the max flow for each arc, the same way as
+	 * CompsMain.maxFlow. The demands are not changed.
+	 *
+	 * @param capacity an integer array containing the capacities for each of the arcs
+	 * @param demand the demand of each node
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public double [] maxFlow(int [] capacity, double [] demand)
+	{
+		return maxFlow(capacity, demand, start, predecessor, prevEdge);
+	}
+
+	/**
+	 * The max flow of any shortest path tree, found the same way as CompsMain.maxFlow: the leaves of the tree are the
+	 * nodes that are not the predecessor of any node. The demands are not changed.
+	 *
+	 * @param capacity an integer array containing the capacities for each of the arcs
+	 * @param demand the demand of each node
+	 * @param start the supply node
+	 * @param predecessor the node before each node in the tree, or -1 if there is none
+	 * @param prevEdge the arc into each node in the tree
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public static double [] maxFlow(int [] capacity, double [] demand, int start, int [] predecessor, int [] prevEdge)
+	{
+		int n_nodes = predecessor.length;
+		boolean [] notLeaf = new boolean[n_nodes];
+		for(int v = 0; v < n_nodes; v++)
+		{
+			if(predecessor[v] != -1)
+				notLeaf[predecessor[v]] = true;
+		}
+
+		double [] totalDemand = new double[capacity.length];
+		double [] unmet = demand.clone(); // the demands that have not been added in yet
+
+		double lambda = Double.MAX_VALUE, compare;
+
+		for(int n = 0; n < n_nodes; n++)
+		{
+			if(predecessor[n] == -1 && n != start)
+			{
+				System.out.println("Error: Graph is not connected.");
+				System.exit(2);
+			}
+
+			if(!notLeaf[n]) // only trace up from the leaves
+			{
+				int p = n;
+				double d = 0;
+				while(unmet[p] != -1) // while we are not at the start node
+				{
+					d += unmet[p];
+					unmet[p] = 0;
+
+					totalDemand[prevEdge[p]] += d;
+
+					// see if we've found lambda
+					compare = ((double)capacity[prevEdge[p]]) / totalDemand[prevEdge[p]];
+					if(compare < lambda)
+						lambda = compare;
+
+					p = predecessor[p];
+				}
+			}
+		}
+
+		// maximize the flow by multiplying by lambda
+		for(int c = 0; c < totalDemand.length; c++)
+			totalDemand[c] = totalDemand[c]*lambda;
+
+		return totalDemand;
+	}
+
+	/**
+	 * Make the priority queue named by a system property value: "binary" (a BinaryHeapQueue, the only one that finds the
+	 * same tree as the Nodes), "dary" (a DaryHeapQueue), "pairing" (a PairingHeapQueue), "radix" (a RadixHeapQueue, only
+	 * for weights that are not negative) or "dial" (a DialQueue, only for weights that are small whole numbers). The
+	 * default of comps.queue is "binary"; "auto" is turned into one of these by CompsMain.chooseQueue before calling this.
+	 *
+	 * @param name the name of the queue
+	 * @param n the number of nodes in the graph
+	 * @param weights the weight of each arc
+	 * @return the queue
+	 */
+	public static DijkstraQueue queue(String name, int n, double [] weights)
+	{
+		if(name.equals("binary"))
+			return new BinaryHeapQueue(n);
+		else if(name.equals("dary"))
+			return new DaryHeapQueue(n);
+		else if(name.equals("pairing"))
+			return new PairingHeapQueue(n);
+		else if(name.equals("radix"))
+		{
+			if(!(minWeight(weights) >= 0))
+			{
+				System.err.println("Error: The radix queue needs weights that are not negative.");
+				System.exit(1);
+			}
+			return new RadixHeapQueue(n);
+		}
+		else if(name.equals("dial"))
+		{
+			int max = maxWholeWeight(weights);
+			if(max < 0)
+			{
+				System.err.println("Error: The dial queue needs weights that are whole numbers from 0 to " + DIAL_MAX + ".");
+				System.exit(1);
+			}
+			return new DialQueue(n, max);
+		}
+
+		System.err.println("Error: Unknown priority queue \"" + name + "\". Use binary, dary, pairing, radix or dial.");
+		System.exit(1);
+		return null;
+	}
+
+	/**
+	 *
+	 * @param weights the weight of each arc
+	 * @return the smallest weight if one is negative, 0 if none are, or NaN if there is a weight that is NaN
+	 */
+	public static double minWeight(double [] weights)
+	{
+		double min = 0;
+		for(int c = 0; c < weights.length; c++)
+		{
+			if(!(weights[c] >= min)) // true for NaN too
+			{
+				if(Double.isNaN(weights[c]))
+					return Double.NaN;
+				min = weights[c];
+			}
+		}
+
+		return min;
+	}
+
+	/**
+	 *
+	 * @param weights the weight of each arc
+	 * @return the largest weight, if every weight is a whole number from 0 to DIAL_MAX, or -1 if not
+	 */
+	public static int maxWholeWeight(double [] weights)
+	{
+		int max = 0;
+		for(int c = 0; c < weights.length; c++)
+		{
+			double w = weights[c];
+			if(!(w >= 0 && w <= DIAL_MAX) || w != Math.floor(w))
+				return -1;
+			if(w > max)
+				max = (int)w;
+		}
+
+		return max;
+	}
+
+	/**
+	 * Find the supply node (the start node) of the graph. The supply node is the node that has a demand of -1.
+	 *
+	 * @param demand the demand of each node
+	 * @return the supply node of this graph
+	 */
+	public static int findSupplyNode(double [] demand)
+	{
+		for(int c = 0; c < demand.length; c++)
+		{
+			if(demand[c] == -1)
+				return c;
+		}
+
+		System.out.println("Error: There is no node with demand -1.");
+		System.exit(1);
+		return -1;
+	}
+
+
+
+	/**
+	 *
+	 * @return the distance from the supply node to each node
+	 */
+	public double [] getDistance()
+	{
+		return distance;
+	}
+
+	/**
+	 *
+	 * @return the node before each node on its shortest path, or -1 for the supply node
+	 */
+	public int [] getPredecessor()
+	{
+		return predecessor;
+	}
+
+	/**
+	 *
+	 * @return the arc into each node on its shortest path, or -1 for the supply node
+	 */
+	public int [] getPrevEdge()
+	{
+		return prevEdge;
+	}
+
+	/**
+	 *
+	 * @param v a node
+	 * @return true if the node is not the predecessor of any other node
+	 */
+	public boolean isLeaf(int v)
+	{
+		return (flags[v] & NOT_LEAF) == 0;
+	}
+
+	/**
+	 *
+	 * @param v a node
+	 * @return true if the node was reached from the supply node
+	 */
+	public boolean isExplored(int v)
+	{
+		return (flags[v] & IN_S) != 0;
+	}
+}
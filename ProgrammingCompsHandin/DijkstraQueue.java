@@ -0,0 +1,48 @@
+/**
+ * A priority queue of nodes for dijkstra's algorithm. The nodes are the ids 0 to n-1, and each node in the queue has a
+ * key, which is its distance to the supply node.
+ *
+ * A node is only offered when it is not in the queue, and only has its key changed while it is in the queue, so the
+ * queue does not have to check either (DijkstraEngine keeps track of which nodes are in the queue).
+ *
+ */
+public interface DijkstraQueue
+{
+	/**
+	 * Inserts a node into the queue.
+	 *
+	 * @param v the node
+	 * @param key its distance
+	 */
+	public void offer(int v, double key);
+
+	/**
+	 * Changes the key of a node that is in the queue, and moves it to the right place. The new key is almost always
+	 * smaller than the old one. A larger key is only handled by DaryHeapQueue, PairingHeapQueue, RadixHeapQueue and
+	 * DialQueue; BinaryHeapQueue (like CompsPriorityQueue) only moves a node up, so after a larger key it can poll the
+	 * wrong node. Dijkstra's algorithm only makes a key larger when the supply node has two arcs to the same node, and
+	 * the binary heap keeps doing that the same way as CompsPriorityQueue so that it finds the same tree.
+	 *
+	 * @param v the node
+	 * @param key its new distance
+	 */
+	public void changeKey(int v, double key);
+
+	/**
+	 * Removes the node with the smallest key.
+	 *
+	 * @return the node
+	 */
+	public int poll();
+
+	/**
+	 *
+	 * @return true if the queue is empty
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Removes all of the nodes, so the queue can be used for another run.
+	 */
+	public void clear();
+}
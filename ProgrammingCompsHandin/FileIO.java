@@ -45,121 +45,67 @@ public class FileIO
 		flow = null;
 	}
 	
+	/**
+	 * Constructor for FileIO class, for reading a graph without writing an output file.
+	 * 
+	 * @param inputLoc The full path name of the input file.
+	 */
+	public FileIO(String inputLoc)
+	{
+		in = new File(inputLoc);
+		out = null;
+		
+		readFile();
+		
+		flow = null;
+	}
+	
 	/**
 	 * Reads the input file, and stores all the information about the graph.
+	 * 
+	 * A binary graph file (see BinaryGraph) is recognized by its first bytes and copied straight into the arrays. A text 
+	 * file is memory-mapped and parsed from its bytes (see MappedInput). The system property comps.parse can be 
+	 * "parallel" to parse the lines of the file on several threads (see ParallelInput; comps.threads sets how many), or 
+	 * "text" to read the file word by word through a BufferedReader.
 	 */
 	private void readFile()
 	{
-		// for reading in from the file
-		BufferedReader br;
-
 		try 
 		{
-			br = new BufferedReader(new FileReader(in));
-			
-			// read the first line: number of nodes on the graph
-			n_nodes = Integer.parseInt(br.readLine());
-			
-			if(verbose)
-				System.out.println("Read number of nodes.");
-			
-			// read the second line: start indexes of the arcs coming from each node
-			startIndex = new int[n_nodes + 1];
-			for(int c = 0; c < startIndex.length; c++)
+			String parse = System.getProperty("comps.parse", "mapped");
+			if(BinaryGraph.isBinary(in))
+				readBinary(new BinaryGraph(in));
+			else if(parse.equals("text"))
 			{
-				startIndex[c] = Integer.parseInt(readWord(br));
+				NumberInput ni = new WordInput(new BufferedReader(new FileReader(in)));
+				readNumbers(ni);
+				ni.close();
 			}
-			n_arcs = startIndex[startIndex.length -1];
-			for(int c = 0; c < startIndex.length; c++)
+			else if(parse.equals("parallel"))
 			{
-				if(startIndex[c] < 0 || startIndex[c] > n_arcs)
+				MappedInput mi = new MappedInput(in);
+				ParallelInput pi = new ParallelInput(mi, Integer.getInteger("comps.threads", Runtime.getRuntime().availableProcessors()));
+				try
 				{
-					System.err.println("Input error: Problem with start index.");
-					System.exit(1);
+					if(!readLines(pi))
+					{
+						// the numbers are not one array per line, so read them one after another instead
+						mi.seek(0, mi.length());
+						readNumbers(mi);
+					}
 				}
-			}
-			
-			if(verbose)
-				System.out.println("Read start indexes.");
-
-			// read the third line: target nodes of each of the arcs
-			target = new int[n_arcs];
-			for(int c = 0; c < target.length; c++)
-			{
-				target[c] = Integer.parseInt(readWord(br));
-				if(target[c] >= n_nodes || target[c] < 0)
+				finally
 				{
-					System.err.println("Input error: Problem with target nodes of arcs.");
-					System.exit(1);
+					pi.close();
 				}
+				mi.close();
 			}
-			
-			
-			if(verbose)
-				System.out.println("Read target nodes of the arcs.");
-			
-			
-			// read the fourth line: capacity of each arc
-			capacity = new int[n_arcs];
-			for(int c = 0; c < capacity.length; c++)
+			else
 			{
-				capacity[c] = Integer.parseInt(readWord(br));
-				if(capacity[c] <= 0)
-				{
-					System.err.println("Input error: Capacities must be natural numbers.");
-					System.exit(1);
-				}
+				NumberInput ni = new MappedInput(in);
+				readNumbers(ni);
+				ni.close();
 			}
-			
-			if(verbose)
-				System.out.println("Read capacities of the arcs.");
-			
-			
-			// read the fifth line: the weights of each arc
-			weights = new double[n_arcs];
-			for(int c = 0; c < weights.length; c++)
-			{
-				weights[c] = Double.parseDouble(readWord(br));
-				if(weights[c] < 0)
-				{
-					System.err.println("Input error: Cannot have negative weights.");
-					System.exit(1);
-				}
-			}
-			
-			if(verbose)
-				System.out.println("Read weights of the arcs.");
-			
-			
-			// read the sixth line: the demand for each node
-			demand = new double[n_nodes];
-			int supplyNode = 0;
-			for(int c = 0; c < demand.length; c++)
-			{
-				demand[c] = Double.parseDouble(readWord(br));
-				if( ((demand[c] < 0)&&(demand[c]!=-1))  || demand[c] > 1)
-				{
-					System.err.println("Input error: Demands must be non-negative (except for supply node) and the demand of the nodes must sum to one.");
-					System.exit(1);
-				}
-				else if(demand[c] == -1)
-				{
-					supplyNode ++;
-				}
-			}
-			if(supplyNode != 1)
-			{
-				System.err.println("Input error: There must be exactly one supply node.");
-				System.exit(1);
-			}
-			
-			if(verbose)
-				System.out.println("Read deamnds of the nodes.");
-			
-			
-			
-			br.close();
-
 		} 
 		catch (Exception e) 
 		{
@@ -169,46 +115,405 @@ public class FileIO
 		}
 	}
 	
-	
+	/**
+	 * Reads the numbers of the input file and checks them.
+	 * 
+	 * @param ni the numbers of the input file
+	 * @throws IOException
+	 */
+	private void readNumbers(NumberInput ni) throws IOException
+	{
+		// read the first line: number of nodes on the graph
+		n_nodes = ni.nextInt();
+		
+		if(verbose)
+			System.out.println("Read number of nodes.");
+		
+		// read the second line: start indexes of the arcs coming from each node
+		startIndex = new int[n_nodes + 1];
+		for(int c = 0; c < startIndex.length; c++)
+		{
+			startIndex[c] = ni.nextInt();
+		}
+		checkStartIndex();
+		
+		if(verbose)
+			System.out.println("Read start indexes.");
+
+		// read the third line: target nodes of each of the arcs
+		target = new int[n_arcs];
+		for(int c = 0; c < target.length; c++)
+		{
+			target[c] = ni.nextInt();
+			checkTarget(target[c]);
+		}
+		
+		
+		if(verbose)
+			System.out.println("Read target nodes of the arcs.");
+		
+		
+		// read the fourth line: capacity of each arc
+		capacity = new int[n_arcs];
+		for(int c = 0; c < capacity.length; c++)
+		{
+			capacity[c] = ni.nextInt();
+			checkCapacity(capacity[c]);
+		}
+		
+		if(verbose)
+			System.out.println("Read capacities of the arcs.");
+		
+		
+		// read the fifth line: the weights of each arc
+		weights = new double[n_arcs];
+		for(int c = 0; c < weights.length; c++)
+		{
+			weights[c] = ni.nextDouble();
+			checkWeight(weights[c]);
+		}
+		
+		if(verbose)
+			System.out.println("Read weights of the arcs.");
+		
+		
+		// read the sixth line: the demand for each node
+		demand = new double[n_nodes];
+		int supplyNode = 0;
+		for(int c = 0; c < demand.length; c++)
+		{
+			demand[c] = ni.nextDouble();
+			if(checkDemand(demand[c]))
+				supplyNode ++;
+		}
+		checkSupplyNodes(supplyNode);
+		
+		if(verbose)
+			System.out.println("Read deamnds of the nodes.");
+	}
 	
 	/**
-	 * Returns the next word from the text file. In this case, a word is a sequence of characters that does not
-	 * contain any spaces or newline characters, so that each number from the input file is read in as a word.
+	 * Reads each line of the input file as one array, parsing the lines on several threads, and checks the numbers.
 	 * 
-	 * @param br the BufferedReader that is reading the file
-	 * @return the next word from the text file
+	 * @param pi the lines of the input file
+	 * @return false if the file does not have one line for each array, in which case nothing was read
 	 * @throws IOException
 	 */
-	private String readWord(BufferedReader br) throws IOException
+	private boolean readLines(ParallelInput pi) throws IOException
 	{
-		StringBuffer s = new StringBuffer();
-		char c = (char)br.read();
+		if(pi.nlines() != 6)
+			return false;
+		
+		// each line is only parsed once, so parse them all before checking that they are the right lengths
+		int [] first, starts, targets, capacities;
+		double [] arcWeights, demands;
+		try
+		{
+			first = pi.ints(0);
+			starts = pi.ints(1);
+			targets = pi.ints(2);
+			capacities = pi.ints(3);
+			arcWeights = pi.doubles(4);
+			demands = pi.doubles(5);
+		}
+		catch(NumberFormatException e)
+		{
+			// a line that should be integers is not, so the arrays may not be one per line
+			return false;
+		}
 		
-		while(c != ' ' && c != '\n')
+		// the number of nodes is on the first line
+		if(first.length != 1)
+			return false;
+		n_nodes = first[0];
+		if(n_nodes < 0 || starts.length != n_nodes + 1 || demands.length != n_nodes)
+			return false;
+		
+		// the number of arcs is the last start index
+		startIndex = starts;
+		checkStartIndex();
+		if(targets.length != n_arcs || capacities.length != n_arcs || arcWeights.length != n_arcs)
+			return false;
+		
+		target = targets;
+		for(int c = 0; c < target.length; c++)
+			checkTarget(target[c]);
+		
+		capacity = capacities;
+		for(int c = 0; c < capacity.length; c++)
+			checkCapacity(capacity[c]);
+		
+		weights = arcWeights;
+		for(int c = 0; c < weights.length; c++)
+			checkWeight(weights[c]);
+		
+		demand = demands;
+		int supplyNode = 0;
+		for(int c = 0; c < demand.length; c++)
 		{
-			s.append(c);
-			c = (char)br.read();
+			if(checkDemand(demand[c]))
+				supplyNode ++;
 		}
+		checkSupplyNodes(supplyNode);
+		
+		return true;
+	}
+	
+	/**
+	 * Takes the arrays of a binary graph file, and checks the numbers the same way as for a text file.
+	 * 
+	 * @param bg the binary graph
+	 */
+	private void readBinary(BinaryGraph bg)
+	{
+		n_nodes = bg.getNumNodes();
+		startIndex = bg.getStartIndex();
+		checkStartIndex();
+		
+		target = bg.getTarget();
+		for(int c = 0; c < target.length; c++)
+			checkTarget(target[c]);
 		
-		if(s.length() == 0 || s.toString().trim().equals(""))
-			return readWord(br);
-		else
+		capacity = bg.getCapacity();
+		for(int c = 0; c < capacity.length; c++)
+			checkCapacity(capacity[c]);
+		
+		weights = bg.getWeights();
+		for(int c = 0; c < weights.length; c++)
+			checkWeight(weights[c]);
+		
+		demand = bg.getDemand();
+		int supplyNode = 0;
+		for(int c = 0; c < demand.length; c++)
+		{
+			if(checkDemand(demand[c]))
+				supplyNode ++;
+		}
+		checkSupplyNodes(supplyNode);
+	}
+	
+	/**
+	 * Sets the number of arcs from the start indexes, and checks that the start indexes are all arcs.
+	 */
+	private void checkStartIndex()
+	{
+		n_arcs = startIndex[startIndex.length -1];
+		for(int c = 0; c < startIndex.length; c++)
+		{
+			if(startIndex[c] < 0 || startIndex[c] > n_arcs)
+			{
+				System.err.println("Input error: Problem with start index.");
+				System.exit(1);
+			}
+		}
+	}
+	
+	private void checkTarget(int target)
+	{
+		if(target >= n_nodes || target < 0)
+		{
+			System.err.println("Input error: Problem with target nodes of arcs.");
+			System.exit(1);
+		}
+	}
+	
+	private void checkCapacity(int capacity)
+	{
+		if(capacity <= 0)
+		{
+			System.err.println("Input error: Capacities must be natural numbers.");
+			System.exit(1);
+		}
+	}
+	
+	private void checkWeight(double weight)
+	{
+		if(weight < 0)
+		{
+			System.err.println("Input error: Cannot have negative weights.");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Checks the demand of a node.
+	 * 
+	 * @param demand the demand
+	 * @return true if this is the supply node
+	 */
+	private boolean checkDemand(double demand)
+	{
+		if( ((demand < 0)&&(demand!=-1))  || demand > 1)
+		{
+			System.err.println("Input error: Demands must be non-negative (except for supply node) and the demand of the nodes must sum to one.");
+			System.exit(1);
+		}
+		
+		return demand == -1;
+	}
+	
+	private void checkSupplyNodes(int supplyNode)
+	{
+		if(supplyNode != 1)
+		{
+			System.err.println("Input error: There must be exactly one supply node.");
+			System.exit(1);
+		}
+	}
+	
+	
+	
+	/**
+	 * Reads the numbers of the input file as words from a text file. In this case, a word is a sequence of characters 
+	 * that does not contain any spaces or newline characters, so that each number from the input file is read in as a word.
+	 */
+	private static class WordInput implements NumberInput
+	{
+		private BufferedReader br;
+		
+		public WordInput(BufferedReader br)
+		{
+			this.br = br;
+		}
+		
+		public int nextInt() throws IOException
+		{
+			return Integer.parseInt(readWord());
+		}
+		
+		public double nextDouble() throws IOException
+		{
+			return Double.parseDouble(readWord());
+		}
+		
+		public void close() throws IOException
+		{
+			br.close();
+		}
+		
+		/**
+		 * Returns the next word from the text file, skipping over any blank words.
+		 * 
+		 * @return the next word from the text file
+		 * @throws IOException
+		 */
+		private String readWord() throws IOException
+		{
+			StringBuilder s = new StringBuilder();
+			while(s.length() == 0 || s.toString().trim().equals(""))
+			{
+				s.setLength(0);
+				int c = br.read();
+				if(c == -1)
+					throw new EOFException("The input ended before all of the numbers were read.");
+				
+				while(c != ' ' && c != '\n' && c != -1)
+				{
+					s.append((char)c);
+					c = br.read();
+				}
+			}
+			
 			return s.toString();
+		}
 	}
 	
 	
 	
+	/**
+	 * Writes the graph as a binary graph file (see BinaryGraph).
+	 * 
+	 * @param f the file to write
+	 * @throws IOException
+	 */
+	public void writeBinary(File f) throws IOException
+	{
+		BinaryGraph.write(f, startIndex, target, capacity, weights, demand);
+	}
+	
+	/**
+	 * Writes the graph in the text format of the input file. Doubles are written so that they read back in exactly.
+	 * 
+	 * @param f the file to write
+	 * @throws IOException
+	 */
+	public void writeInput(File f) throws IOException
+	{
+		BufferedWriter bw = new BufferedWriter(new FileWriter(f), 1 << 16);
+		
+		bw.write(String.valueOf(n_nodes));
+		bw.write("\n");
+		for(int c = 0; c < startIndex.length; c++)
+		{
+			bw.write(String.valueOf(startIndex[c]));
+			bw.write(' ');
+		}
+		bw.write("\n");
+		for(int c = 0; c < target.length; c++)
+		{
+			bw.write(String.valueOf(target[c]));
+			bw.write(' ');
+		}
+		bw.write("\n");
+		for(int c = 0; c < capacity.length; c++)
+		{
+			bw.write(String.valueOf(capacity[c]));
+			bw.write(' ');
+		}
+		bw.write("\n");
+		for(int c = 0; c < weights.length; c++)
+		{
+			bw.write(String.valueOf(weights[c]));
+			bw.write(' ');
+		}
+		bw.write("\n");
+		for(int c = 0; c < demand.length; c++)
+		{
+			bw.write(String.valueOf(demand[c]));
+			bw.write(' ');
+		}
+		bw.write("\n");
+		
+		bw.close();
+	}
+	
 	/**
 	 * Writes the program's output file.
 	 * Precondition: The flow must be set first.
+	 * 
+	 * The file is written by a FlowWriter, which gives the same text without making Strings for the numbers, unless the 
+	 * system property comps.write is "format". The property comps.writeThreads sets how many threads format the flows 
+	 * (default 1).
+	 * 
+	 * @param out the output file
+	 * @param flow the maximized flow on all the arcs
 	 */
-	private void writeTextFile() 
+	private void writeTextFile(File out, double [] flow) 
 	{
 		if(flow == null)
 		{
 			System.err.println("Error: Cannot write the output file until the program sets the flow.");
 			return;
 		}
+		if(out == null)
+		{
+			System.err.println("Error: No output file was given.");
+			return;
+		}
+		
+		if(!System.getProperty("comps.write", "fast").equals("format"))
+		{
+			try
+			{
+				new FlowWriter(out, Integer.getInteger("comps.writeThreads", 1)).write(n_nodes, startIndex, target, flow);
+			}
+			catch (Exception e) 
+			{
+				System.err.println("FileUtil writeTextFile error, file:  " + out.getName());
+				System.err.println(e.toString());
+			}
+			return;
+		}
 		
 		BufferedWriter bw;
 		try 
@@ -357,7 +662,112 @@ public class FileIO
 	{
 		this.flow = flow;
 		
-		writeTextFile();
+		writeTextFile(out, flow);
+	}
+	
+	/**
+	 * Reads the demands of other scenarios for the same graph. A demand file is either lines of n_nodes demands, one 
+	 * line for each scenario, or a matrix of n_nodes lines with one column for each scenario. The demands are checked 
+	 * the same way as the demands of the input file, and each scenario must have the same supply node as the input file.
+	 * 
+	 * @param f the demand file
+	 * @return the demands of each scenario
+	 */
+	public double [][] readDemands(File f)
+	{
+		try
+		{
+			MappedInput mi = new MappedInput(f);
+			
+			// count the numbers on each line
+			long [] newlines = mi.find('\n');
+			int [] counts = new int[newlines.length + 1];
+			int lines = 0;
+			long start = 0;
+			for(int l = 0; l <= newlines.length; l++)
+			{
+				long end = (l < newlines.length) ? newlines[l] : mi.length();
+				int count = mi.slice(start, end).countWords();
+				if(count > 0)
+					counts[lines++] = count;
+				start = end + 1;
+			}
+			
+			boolean rows = lines > 0;
+			boolean columns = lines == n_nodes;
+			for(int l = 0; l < lines; l++)
+			{
+				rows &= counts[l] == n_nodes;
+				columns &= counts[l] == counts[0];
+			}
+			if(!rows && !columns)
+			{
+				System.err.println("Input error: The demand file " + f.getName() + " must have " + n_nodes + 
+						" demands on each line, or " + n_nodes + " lines with the same number of demands.");
+				System.exit(1);
+			}
+			
+			mi.seek(0, mi.length());
+			double [][] scenarios;
+			if(rows)
+			{
+				scenarios = new double[lines][n_nodes];
+				for(int s = 0; s < lines; s++)
+				{
+					for(int c = 0; c < n_nodes; c++)
+						scenarios[s][c] = mi.nextDouble();
+				}
+			}
+			else
+			{
+				scenarios = new double[counts[0]][n_nodes];
+				for(int c = 0; c < n_nodes; c++)
+				{
+					for(int s = 0; s < scenarios.length; s++)
+						scenarios[s][c] = mi.nextDouble();
+				}
+			}
+			mi.close();
+			
+			for(int s = 0; s < scenarios.length; s++)
+			{
+				int supplyNode = 0;
+				for(int c = 0; c < n_nodes; c++)
+				{
+					if(checkDemand(scenarios[s][c]))
+					{
+						supplyNode ++;
+						if(demand[c] != -1)
+						{
+							System.err.println("Input error: The supply node of the demands in " + f.getName() + 
+									" is not the supply node of the graph.");
+							System.exit(1);
+						}
+					}
+				}
+				checkSupplyNodes(supplyNode);
+			}
+			
+			return scenarios;
+		}
+		catch (Exception e) 
+		{
+			System.err.println("Error reading file:  " + f.getName());
+			System.err.println(e.toString());
+			System.exit(1);
+			return null;
+		}
+	}
+	
+	/**
+	 * Write an output file for a flow other than the one for the demands of the input file.
+	 * 
+	 * @param f the output file
+	 * @param flow the maximized flow on all the arcs
+	 */
+	public void writeFlow(File f, double [] flow)
+	{
+		writeTextFile(f, flow);
 	}
 	
 	
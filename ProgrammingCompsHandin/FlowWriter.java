@@ -0,0 +1,284 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes the output file without making any Strings for the numbers. The numbers are formatted straight into a byte buffer,
+ * which is written out through a FileChannel whenever it fills up.
+ *
+ * The flows are written with six digits after the decimal point, which must be exactly the text that String.format("%f")
+ * gives. String.format rounds the shortest decimal form of the double (the digits Double.toString would print) half up,
+ * which is the same as rounding the double itself unless the double is very close to halfway between two outputs, so those
+ * numbers (and NaN, infinity and numbers of a trillion or more) still go through String.format. If the default locale does
+ * not write numbers like "0.500000", everything goes through String.format.
+ *
+ * The flow line can also be formatted on several threads, one chunk of arcs at a time, and written out in order.
+ *
+ */
+public class FlowWriter
+{
+	private static final int BUFFER = 1 << 20;
+	private static final int CHUNK = 1 << 18; // arcs in each chunk that is formatted on its own thread
+	private static final double MAX_FAST = 1e12; // larger numbers go through String.format
+	public static final int MAX_LENGTH = 320; // the longest a formatted double can be (309 digits, the sign, the point and 6 decimals)
+
+	private static final boolean fastLocale = String.format("%f", -1234.5).equals("-1234.500000");
+
+	private File out;
+	private int threads;
+
+
+	/**
+	 *
+	 * @param out the output file
+	 * @param threads the number of threads to format the flows with (1 to format them while writing)
+	 */
+	public FlowWriter(File out, int threads)
+	{
+		this.out = out;
+		this.threads = threads;
+	}
+
+	/**
+	 * Writes the output file.
+	 *
+	 * @param n_nodes the number of nodes
+	 * @param startIndex the start indexes of the nodes (followed by the number of arcs)
+	 * @param target the target nodes of the arcs
+	 * @param flow the flow on each arc
+	 * @throws IOException
+	 */
+	public void write(int n_nodes, int [] startIndex, int [] target, double [] flow) throws IOException
+	{
+		FileChannel fc = new FileOutputStream(out).getChannel();
+		try
+		{
+			ByteBuffer b = ByteBuffer.allocate(BUFFER);
+
+			// write the first line: number of nodes of the graph
+			putInt(fc, b, n_nodes);
+			putByte(fc, b, '\n');
+
+			// write the second line: start indexes of the nodes (followed by the number of arcs)
+			for(int c = 0; c < startIndex.length; c++)
+			{
+				putInt(fc, b, startIndex[c]);
+				putByte(fc, b, ' ');
+			}
+			putByte(fc, b, '\n');
+
+			// write the third line: the target nodes of the arcs
+			for(int c = 0; c < target.length; c++)
+			{
+				putInt(fc, b, target[c]);
+				putByte(fc, b, ' ');
+			}
+			putByte(fc, b, '\n');
+
+			// write the fourth line: rational numbers giving the flow on each arc
+			if(threads > 1 && flow.length > CHUNK)
+			{
+				flush(fc, b);
+				writeParallel(fc, flow);
+			}
+			else
+			{
+				byte [] digits = new byte[MAX_LENGTH];
+				for(int c = 0; c < flow.length; c++)
+				{
+					int l = format(flow[c], digits, 0);
+					if(b.remaining() < l + 1)
+						flush(fc, b);
+					b.put(digits, 0, l);
+					b.put((byte)' ');
+				}
+			}
+			putByte(fc, b, '\n');
+
+			flush(fc, b);
+		}
+		finally
+		{
+			fc.close();
+		}
+	}
+
+	/**
+	 * Formats chunks of the flows on several threads, and writes the chunks out in order. Only a few chunks are formatted
+	 * ahead of the one that is being written, so the whole line is never in memory at once.
+	 */
+	private void writeParallel(FileChannel fc, final double [] flow) throws IOException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try
+		{
+			LinkedList<Future<ByteBuffer>> ahead = new LinkedList<Future<ByteBuffer>>();
+			int next = 0;
+			while(next < flow.length || !ahead.isEmpty())
+			{
+				while(next < flow.length && ahead.size() < threads*2)
+				{
+					final int from = next;
+					final int to = (int)Math.min((long)next + CHUNK, flow.length);
+					ahead.add(pool.submit(new Callable<ByteBuffer>() {
+						public ByteBuffer call()
+						{
+							return formatChunk(flow, from, to);
+						}
+					}));
+					next = to;
+				}
+
+				ByteBuffer chunk;
+				try
+				{
+					chunk = ahead.removeFirst().get();
+				}
+				catch(Exception e)
+				{
+					throw new IOException("Error formatting the flows: " + e.toString());
+				}
+				while(chunk.hasRemaining())
+					fc.write(chunk);
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *
+	 * @return the formatted flows from index from to index to, each followed by a space, ready to be written
+	 */
+	private static ByteBuffer formatChunk(double [] flow, int from, int to)
+	{
+		byte [] b = new byte[(to - from) * 12];
+		int pos = 0;
+		for(int c = from; c < to; c++)
+		{
+			if(b.length - pos < MAX_LENGTH + 1)
+				b = Arrays.copyOf(b, b.length * 2);
+			pos = format(flow[c], b, pos);
+			b[pos++] = ' ';
+		}
+
+		return ByteBuffer.wrap(b, 0, pos);
+	}
+
+	/**
+	 * Writes a double with six digits after the decimal point, the same as String.format("%f", x).
+	 *
+	 * @param x the number
+	 * @param b where to write it; there must be room for at least MAX_LENGTH bytes
+	 * @param pos where in b to start
+	 * @return the position after the number
+	 */
+	public static int format(double x, byte [] b, int pos)
+	{
+		double abs = Math.abs(x);
+		if(!fastLocale || !(abs < MAX_FAST))
+			return slowFormat(x, b, pos);
+
+		long whole = (long)abs; // exact, since abs < MAX_FAST
+		double frac = (abs - (double)whole) * 1e6; // the subtraction is exact, the multiplication is off by at most an ulp
+		long micros = (long)frac;
+		double half = frac - (double)micros - 0.5;
+
+		// too close to halfway to know which way String.format rounds
+		double tolerance = 1e-6 + 4e6 * Math.ulp(abs);
+		if(half > -tolerance && half < tolerance)
+			return slowFormat(x, b, pos);
+
+		if(half > 0)
+		{
+			micros++;
+			if(micros == 1000000)
+			{
+				micros = 0;
+				whole++;
+			}
+		}
+
+		if(x < 0 || (x == 0 && 1/x < 0)) // including -0.0
+			b[pos++] = '-';
+
+		pos = putLong(whole, b, pos);
+		b[pos++] = '.';
+		for(int d = 5; d >= 0; d--)
+		{
+			b[pos + d] = (byte)('0' + micros % 10);
+			micros /= 10;
+		}
+
+		return pos + 6;
+	}
+
+	private static int slowFormat(double x, byte [] b, int pos)
+	{
+		String s = String.format("%f", x);
+		for(int i = 0; i < s.length(); i++)
+			b[pos++] = (byte)s.charAt(i);
+
+		return pos;
+	}
+
+	/**
+	 * Writes the digits of a non-negative long.
+	 *
+	 * @return the position after the number
+	 */
+	private static int putLong(long v, byte [] b, int pos)
+	{
+		int digits = 1;
+		for(long p = 10; p <= v && digits < 19; p *= 10)
+			digits++;
+
+		for(int d = digits - 1; d >= 0; d--)
+		{
+			b[pos + d] = (byte)('0' + v % 10);
+			v /= 10;
+		}
+
+		return pos + digits;
+	}
+
+	private static void putInt(FileChannel fc, ByteBuffer b, int v) throws IOException
+	{
+		if(b.remaining() < 12)
+			flush(fc, b);
+
+		if(v < 0)
+		{
+			b.put((byte)'-');
+			if(v == Integer.MIN_VALUE)
+			{
+				b.put("2147483648".getBytes());
+				return;
+			}
+			v = -v;
+		}
+
+		int p = b.position();
+		int l = putLong(v, b.array(), b.arrayOffset() + p);
+		b.position(l - b.arrayOffset());
+	}
+
+	private static void putByte(FileChannel fc, ByteBuffer b, char c) throws IOException
+	{
+		if(!b.hasRemaining())
+			flush(fc, b);
+		b.put((byte)c);
+	}
+
+	private static void flush(FileChannel fc, ByteBuffer b) throws IOException
+	{
+		b.flip();
+		while(b.hasRemaining())
+			fc.write(b);
+		b.clear();
+	}
+}
@@ -0,0 +1,46 @@
+import java.io.*;
+
+/**
+ * Converts a graph between the text format of the input file and the binary format (see BinaryGraph). A text file is 
+ * converted to binary, and a binary file is converted to text. Either one can be given to CompsMain.
+ * 
+ * Usage: java GraphConverter <inputfile> <outputfile>
+ *
+ */
+public class GraphConverter 
+{
+	public static void main(String[] args)
+	{
+		if(args.length != 2)
+		{
+			System.err.println("Usage: java GraphConverter <inputfile> <outputfile>");
+			System.exit(1);
+		}
+		
+		File in = new File(args[0]);
+		File out = new File(args[1]);
+		boolean toText = BinaryGraph.isBinary(in);
+		
+		long start = System.nanoTime();
+		FileIO io = new FileIO(args[0]);
+		long read = System.nanoTime();
+		
+		try 
+		{
+			if(toText)
+				io.writeInput(out);
+			else
+				io.writeBinary(out);
+		} 
+		catch (IOException e) 
+		{
+			System.err.println("Error writing file:  " + out.getName());
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+		long written = System.nanoTime();
+		
+		System.out.println("Read " + io.getNumNodes() + " nodes and " + io.getNumArcs() + " arcs in " + (read - start)/1000000 + " ms, wrote " 
+				+ (toText ? "text" : "binary") + " in " + (written - read)/1000000 + " ms");
+	}
+}
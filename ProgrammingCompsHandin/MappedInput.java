@@ -0,0 +1,436 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Reads the numbers of the input file straight from the bytes of the file, which is memory-mapped instead of being read
+ * through a Reader. No String is made for a number unless it has to be: integers are added up digit by digit, and a double
+ * with at most 15 significant digits and a small exponent is the exact product or quotient of two doubles (so it is the
+ * same double that Double.parseDouble gives). Anything else is given to Double.parseDouble.
+ *
+ * A mapped buffer can only hold 2GB, so larger files are mapped in several pieces.
+ *
+ */
+public class MappedInput implements NumberInput
+{
+	private static final long SEGMENT = 1L << 30; // the most bytes in one mapped piece of the file
+
+	// exact powers of ten for the fast path of nextDouble
+	private static final double [] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+		1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private ByteBuffer [] segments;
+	private long length;
+
+	private ByteBuffer buf; // the piece that is being read
+	private int segment; // the index of that piece
+	private long end; // stop reading here
+
+	private byte [] word; // the bytes of the current number, for the numbers that need Double.parseDouble
+
+
+	/**
+	 * Maps the whole file for reading.
+	 *
+	 * @param f the file
+	 * @throws IOException
+	 */
+	public MappedInput(File f) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		FileChannel fc = raf.getChannel();
+		length = fc.size();
+
+		segments = new ByteBuffer[(int)((length + SEGMENT - 1) / SEGMENT)];
+		for(int s = 0; s < segments.length; s++)
+		{
+			long start = s * SEGMENT;
+			segments[s] = fc.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT, length - start));
+		}
+
+		// the mapping stays valid after the file is closed
+		raf.close();
+
+		word = new byte[64];
+		seek(0, length);
+	}
+
+	/**
+	 * Another reader of the same mapped file, which reads from start to end.
+	 */
+	private MappedInput(ByteBuffer [] segments, long length, long start, long end)
+	{
+		this.segments = segments;
+		this.length = length;
+
+		word = new byte[64];
+		seek(start, end);
+	}
+
+	/**
+	 * Make a reader for part of the file. The new reader has its own position, so each thread can have its own.
+	 *
+	 * @param start the first byte to read
+	 * @param end the byte to stop reading before
+	 * @return a reader of the bytes from start to end
+	 */
+	public MappedInput slice(long start, long end)
+	{
+		return new MappedInput(segments, length, start, end);
+	}
+
+	/**
+	 *
+	 * @param pos a position in the file
+	 * @return the byte at that position
+	 */
+	public int get(long pos)
+	{
+		return segments[(int)(pos / SEGMENT)].get((int)(pos % SEGMENT)) & 0xff;
+	}
+
+	/**
+	 * Find a byte from the current position to the end. Afterwards, the position is at the end.
+	 *
+	 * @param b the byte to look for
+	 * @return the positions of the byte, in order
+	 */
+	public long [] find(int b)
+	{
+		long [] found = new long[16];
+		int n = 0;
+		long pos = position();
+		for(int c = next(); c != -1; c = next())
+		{
+			if(c == b)
+			{
+				if(n == found.length)
+					found = Arrays.copyOf(found, n*2);
+				found[n] = pos;
+				n++;
+			}
+			pos++;
+		}
+
+		return Arrays.copyOf(found, n);
+	}
+
+	/**
+	 * Count the words (numbers) from the current position to the end. Afterwards, the position is at the end.
+	 *
+	 * @return the number of words
+	 */
+	public int countWords()
+	{
+		int count = 0;
+		boolean inWord = false;
+		int b = next();
+		while(b != -1)
+		{
+			if(b > ' ')
+			{
+				if(!inWord)
+					count++;
+				inWord = true;
+			}
+			else
+				inWord = false;
+			b = next();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Skip the whitespace before the next word (number).
+	 *
+	 * @return false if there are no more words before the end
+	 */
+	public boolean hasNext()
+	{
+		int b = next();
+		while(b != -1 && b <= ' ')
+			b = next();
+
+		if(b == -1)
+			return false;
+
+		// leave the first byte of the word to be read again
+		buf.position(buf.position() - 1);
+		return true;
+	}
+
+	/**
+	 *
+	 * @return the length of the file in bytes
+	 */
+	public long length()
+	{
+		return length;
+	}
+
+	/**
+	 * Start reading at a position in the file.
+	 *
+	 * @param start the byte to read next
+	 * @param end the byte to stop reading before
+	 */
+	public void seek(long start, long end)
+	{
+		this.end = end;
+
+		if(segments.length == 0)
+		{
+			buf = ByteBuffer.allocate(0);
+			return;
+		}
+
+		segment = (int)Math.min(start / SEGMENT, segments.length - 1);
+		buf = segments[segment].duplicate();
+		buf.position((int)(start - segment * SEGMENT));
+		limit();
+	}
+
+	/**
+	 *
+	 * @return the position of the next byte to read
+	 */
+	public long position()
+	{
+		return segment * SEGMENT + buf.position();
+	}
+
+	/**
+	 * Stop the current piece at the end, if the end is in it.
+	 */
+	private void limit()
+	{
+		long segStart = segment * SEGMENT;
+		if(end - segStart < buf.capacity())
+			buf.limit((int)Math.max(end - segStart, buf.position()));
+	}
+
+	/**
+	 *
+	 * @return the next byte, or -1 at the end
+	 */
+	private int next()
+	{
+		while(!buf.hasRemaining())
+		{
+			if(segment + 1 >= segments.length || (segment + 1) * SEGMENT >= end)
+				return -1;
+
+			segment++;
+			buf = segments[segment].duplicate();
+			limit();
+		}
+
+		return buf.get() & 0xff;
+	}
+
+	/**
+	 *
+	 * @return the first byte of the next number
+	 * @throws IOException if there are no more numbers
+	 */
+	private int skipSpace() throws IOException
+	{
+		int b = next();
+		while(b != -1 && b <= ' ')
+			b = next();
+
+		if(b == -1)
+			throw new EOFException("The input ended before all of the numbers were read.");
+
+		return b;
+	}
+
+	public int nextInt() throws IOException
+	{
+		int b = skipSpace();
+		long start = position() - 1;
+
+		boolean negative = false;
+		if(b == '-' || b == '+')
+		{
+			negative = (b == '-');
+			b = next();
+		}
+
+		long value = 0;
+		int digits = 0;
+		while(b >= '0' && b <= '9')
+		{
+			value = value*10 + (b - '0');
+			digits++;
+			if(digits > 10)
+				break;
+			b = next();
+		}
+
+		if(negative)
+			value = -value;
+
+		if(digits == 0 || digits > 10 || (b != -1 && b > ' ') || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+			throw new NumberFormatException("For input string: \"" + wordAt(start) + "\"");
+
+		return (int)value;
+	}
+
+	public double nextDouble() throws IOException
+	{
+		int b = skipSpace();
+		int n = 0;
+
+		boolean negative = false;
+		if(b == '-' || b == '+')
+		{
+			negative = (b == '-');
+			n = keep(n, b);
+			b = next();
+		}
+
+		long mantissa = 0;
+		int significant = 0; // digits in the mantissa, not counting leading zeros
+		int exponent = 0;
+		boolean anyDigits = false;
+
+		while(b >= '0' && b <= '9')
+		{
+			anyDigits = true;
+			if(mantissa != 0 || b != '0')
+			{
+				significant++;
+				if(significant <= 18)
+					mantissa = mantissa*10 + (b - '0');
+				else
+					exponent++;
+			}
+			n = keep(n, b);
+			b = next();
+		}
+
+		if(b == '.')
+		{
+			n = keep(n, b);
+			b = next();
+			while(b >= '0' && b <= '9')
+			{
+				anyDigits = true;
+				if(mantissa != 0 || b != '0')
+				{
+					significant++;
+					if(significant <= 18)
+					{
+						mantissa = mantissa*10 + (b - '0');
+						exponent--;
+					}
+				}
+				else
+					exponent--;
+				n = keep(n, b);
+				b = next();
+			}
+		}
+
+		if(anyDigits && (b == 'e' || b == 'E'))
+		{
+			n = keep(n, b);
+			b = next();
+
+			boolean negativeExp = false;
+			if(b == '-' || b == '+')
+			{
+				negativeExp = (b == '-');
+				n = keep(n, b);
+				b = next();
+			}
+
+			int e = 0;
+			boolean expDigits = false;
+			while(b >= '0' && b <= '9')
+			{
+				expDigits = true;
+				if(e < 100000)
+					e = e*10 + (b - '0');
+				n = keep(n, b);
+				b = next();
+			}
+			if(!expDigits)
+				anyDigits = false; // not a number we can read here
+
+			exponent += negativeExp ? -e : e;
+		}
+
+		if(anyDigits && (b == -1 || b <= ' '))
+		{
+			if(mantissa == 0)
+				return negative ? -0.0 : 0.0;
+
+			// both the mantissa and the power of ten are exact doubles, so one multiply or divide rounds correctly
+			if(significant <= 15 && exponent >= -22 && exponent <= 22)
+			{
+				double value = (double)mantissa;
+				if(exponent < 0)
+					value = value / POW10[-exponent];
+				else
+					value = value * POW10[exponent];
+
+				return negative ? -value : value;
+			}
+		}
+
+		// anything else (long numbers, NaN, Infinity, 1.0d, ...) is read the same way as before
+		while(b != -1 && b > ' ')
+		{
+			n = keep(n, b);
+			b = next();
+		}
+
+		return Double.parseDouble(new String(word, 0, n, "ISO-8859-1"));
+	}
+
+	/**
+	 * Keep a byte of the current number.
+	 *
+	 * @return the number of bytes kept
+	 */
+	private int keep(int n, int b)
+	{
+		if(n == word.length)
+		{
+			byte [] w = new byte[word.length*2];
+			System.arraycopy(word, 0, w, 0, n);
+			word = w;
+		}
+		word[n] = (byte)b;
+
+		return n + 1;
+	}
+
+	/**
+	 *
+	 * @return the word that starts at a position in the file (for error messages)
+	 */
+	private String wordAt(long start)
+	{
+		seek(start, end);
+		StringBuilder s = new StringBuilder();
+		int b = next();
+		while(b != -1 && b > ' ' && s.length() < 64)
+		{
+			s.append((char)b);
+			b = next();
+		}
+
+		return s.toString();
+	}
+
+	public void close()
+	{
+		segments = new ByteBuffer[0];
+		buf = ByteBuffer.allocate(0);
+	}
+}
@@ -0,0 +1,20 @@
+/**
+ * The max flow on a shortest path tree that has already been found, for any demands (see TreeFlow).
+ *
+ */
+public interface MaxFlow
+{
+	/**
+	 * Finds the max flow for each arc. The demands are not changed.
+	 *
+	 * @param capacity an integer array containing the capacities for each of the arcs
+	 * @param demand the demand of each node
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public double [] maxFlow(int [] capacity, double [] demand);
+
+	/**
+	 * Stop any threads that were kept for finding the flows.
+	 */
+	public void close();
+}
@@ -0,0 +1,32 @@
+import java.io.*;
+
+/**
+ * A source of the whitespace-separated numbers of the input file. FileIO reads the graph through this, so the same checks 
+ * are done on the input no matter how the numbers are read in.
+ *
+ */
+public interface NumberInput 
+{
+	/**
+	 * 
+	 * @return the next number, which must be an integer
+	 * @throws IOException if there are no more numbers
+	 * @throws NumberFormatException if the next number is not an integer
+	 */
+	public int nextInt() throws IOException;
+	
+	/**
+	 * 
+	 * @return the next number
+	 * @throws IOException if there are no more numbers
+	 * @throws NumberFormatException if the next word is not a number
+	 */
+	public double nextDouble() throws IOException;
+	
+	/**
+	 * Done reading the numbers.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException;
+}
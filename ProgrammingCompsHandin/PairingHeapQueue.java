@@ -0,0 +1,172 @@
+/**
+ * A pairing heap of node ids. Offering a node or making its key smaller is only a link of two trees, which takes constant
+ * time, and all of the work of putting the trees back together is done in poll (amortized O(log n)). Dijkstra's algorithm
+ * usually changes keys far more often than it polls, so this can be faster than a binary heap on dense graphs.
+ *
+ * The trees are kept in arrays: each node has its first child, its next sibling, and the node before it (its parent
+ * if it is the first child).
+ *
+ */
+public class PairingHeapQueue implements DijkstraQueue
+{
+	private double [] key;
+	private int [] child;
+	private int [] sibling;
+	private int [] prev;
+	private int root;
+
+	private int [] pairs; // the children of the root while they are being paired up in poll
+
+
+	/**
+	 *
+	 * @param n the number of nodes in the graph
+	 */
+	public PairingHeapQueue(int n)
+	{
+		key = new double[n];
+		child = new int[n];
+		sibling = new int[n];
+		prev = new int[n];
+		pairs = new int[n];
+		root = -1;
+	}
+
+	public void offer(int v, double k)
+	{
+		key[v] = k;
+		child[v] = -1;
+		sibling[v] = -1;
+		prev[v] = -1;
+
+		root = (root == -1) ? v : link(root, v);
+	}
+
+	public void changeKey(int v, double k)
+	{
+		if(v == root)
+		{
+			if(k <= key[v])
+				key[v] = k;
+			else
+			{
+				// take the root out and put it back in with the larger key
+				poll();
+				offer(v, k);
+			}
+			return;
+		}
+
+		cut(v);
+		if(k <= key[v])
+		{
+			// the subtree of v is still a heap
+			key[v] = k;
+			root = link(root, v);
+		}
+		else
+		{
+			// the children of v might now be smaller than v, so they go back in on their own
+			int sub = combine(v);
+			if(sub != -1)
+				root = link(root, sub);
+			offer(v, k);
+		}
+	}
+
+	public int poll()
+	{
+		int head = root;
+		root = combine(head);
+
+		return head;
+	}
+
+	public boolean isEmpty()
+	{
+		return root == -1;
+	}
+
+	public void clear()
+	{
+		root = -1;
+	}
+
+	/**
+	 * Make the tree with the larger key the first child of the other one.
+	 *
+	 * @return the root of the linked tree
+	 */
+	private int link(int a, int b)
+	{
+		if(key[b] < key[a])
+		{
+			int t = a;
+			a = b;
+			b = t;
+		}
+
+		sibling[b] = child[a];
+		if(child[a] != -1)
+			prev[child[a]] = b;
+		prev[b] = a;
+		child[a] = b;
+
+		sibling[a] = -1;
+		prev[a] = -1;
+		return a;
+	}
+
+	/**
+	 * Take the subtree of v out of its parent.
+	 */
+	private void cut(int v)
+	{
+		int p = prev[v];
+		if(child[p] == v)
+			child[p] = sibling[v];
+		else
+			sibling[p] = sibling[v];
+		if(sibling[v] != -1)
+			prev[sibling[v]] = p;
+
+		sibling[v] = -1;
+		prev[v] = -1;
+	}
+
+	/**
+	 * Pair up the children of v from left to right, and then link the pairs from right to left.
+	 *
+	 * @return the root of the tree of v's children, or -1 if v has none
+	 */
+	private int combine(int v)
+	{
+		int n = 0;
+		int c = child[v];
+		while(c != -1)
+		{
+			int next = sibling[c];
+			if(next == -1)
+			{
+				pairs[n++] = c;
+				break;
+			}
+
+			int after = sibling[next];
+			pairs[n++] = link(c, next);
+			c = after;
+		}
+		child[v] = -1;
+
+		if(n == 0)
+			return -1;
+
+		int r = pairs[n - 1];
+		sibling[r] = -1;
+		prev[r] = -1;
+		for(int i = n - 2; i >= 0; i--)
+			r = link(pairs[i], r);
+
+		return r;
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * A randomized test of the priority queues (see DijkstraQueue). Each queue is given random sequences of offers, key changes
+ * and polls, the same way dijkstra's algorithm uses it (no key is smaller than the last key polled), and every poll is
+ * checked against the smallest key of the nodes in the queue, found by looking at all of them.
+ *
+ * Every queue is tested with keys that only get smaller. The queues that also handle larger keys are tested with those
+ * too; BinaryHeapQueue is left out of that test, since like CompsPriorityQueue it only moves a node up when its key
+ * changes (see DijkstraQueue.changeKey).
+ *
+ * Usage: java QueueTest [trials]
+ *
+ */
+public class QueueTest
+{
+	private static final String [] QUEUES = {"binary", "dary", "pairing", "radix", "dial"};
+	private static final String [] INCREASING = {"dary", "pairing", "radix", "dial"}; // the queues that handle larger keys
+	private static final int MAX_WEIGHT = 10; // the largest step in a key, so that the dial queue can be tested
+
+
+	public static void main(String[] args)
+	{
+		int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+
+		boolean ok = true;
+		for(String q : QUEUES)
+			ok &= test(q, false, trials);
+		for(String q : INCREASING)
+			ok &= test(q, true, trials);
+
+		if(!ok)
+			System.exit(1);
+	}
+
+	/**
+	 * Test one queue.
+	 *
+	 * @param name the name of the queue (see DijkstraEngine.queue)
+	 * @param increases true to also make keys larger
+	 * @param trials the number of random sequences
+	 * @return true if the queue passed
+	 */
+	private static boolean test(String name, boolean increases, int trials)
+	{
+		java.util.Random r = new java.util.Random(1);
+		boolean whole = name.equals("dial"); // the dial queue only takes whole numbers
+
+		for(int trial = 0; trial < trials; trial++)
+		{
+			int n = 1 + r.nextInt(trial < trials/2 ? 20 : 500);
+			DijkstraQueue q = DijkstraEngine.queue(name, n, new double[] {0, MAX_WEIGHT});
+
+			double [] key = new double[n];
+			boolean [] in = new boolean[n];
+			int size = 0;
+			double last = 0; // the last key polled
+
+			for(int op = 0; op < n*6 + n; op++)
+			{
+				boolean draining = op >= n*6;
+				int v = r.nextInt(n);
+				int kind = draining ? 3 : r.nextInt(4);
+				double k = last + (whole ? r.nextInt(MAX_WEIGHT + 1) : r.nextDouble() * MAX_WEIGHT);
+
+				if(kind < 2 && !in[v])
+				{
+					q.offer(v, k);
+					key[v] = k;
+					in[v] = true;
+					size++;
+				}
+				else if(kind < 3 && in[v])
+				{
+					if(!increases && k > key[v])
+					{
+						// make a key between the last key polled and the node's key
+						k = last + (key[v] - last) * r.nextDouble();
+						if(whole)
+							k = Math.floor(k);
+					}
+					q.changeKey(v, k);
+					key[v] = k;
+				}
+				else if(size > 0)
+				{
+					double min = Double.MAX_VALUE;
+					for(int i = 0; i < n; i++)
+					{
+						if(in[i] && key[i] < min)
+							min = key[i];
+					}
+
+					int p = q.poll();
+					if(!in[p] || key[p] != min)
+					{
+						System.out.println(name + (increases ? " with larger keys" : "") + ": FAILED in trial " + trial + 
+								", polled node " + p + " but the smallest key is " + min);
+						return false;
+					}
+					in[p] = false;
+					size--;
+					last = min;
+				}
+
+				if(q.isEmpty() != (size == 0))
+				{
+					System.out.println(name + (increases ? " with larger keys" : "") + ": FAILED in trial " + trial + 
+							", isEmpty is " + q.isEmpty() + " with " + size + " nodes in the queue");
+					return false;
+				}
+			}
+		}
+
+		System.out.println(name + (increases ? " with larger keys" : "") + ": ok");
+		return true;
+	}
+}
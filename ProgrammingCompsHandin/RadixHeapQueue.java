@@ -0,0 +1,124 @@
+/**
+ * A radix heap for non-negative keys. Dijkstra's algorithm never offers a key smaller than the last one it polled, and a
+ * radix heap uses that: each node goes in the bucket of the highest bit where its key differs from the last key polled,
+ * so a node only ever moves to lower buckets, at most 64 times. There are no comparisons between nodes except to find
+ * the smallest key of a bucket when the lowest bucket is empty.
+ *
+ * The keys are doubles, but the bits of a non-negative double are in the same order as the doubles themselves, so the
+ * buckets are found from the bits (Double.doubleToLongBits).
+ *
+ * The buckets are doubly linked lists in arrays, so a node can be taken out of its bucket when its key changes.
+ *
+ */
+public class RadixHeapQueue implements DijkstraQueue
+{
+	private static final int BUCKETS = 65; // bucket 0 is for the keys equal to the last key polled, and one more for each bit
+
+	private long [] key; // the bits of the key of each node
+	private int [] bucket; // the bucket of each node
+	private int [] next;
+	private int [] prev;
+
+	private int [] head; // the first node in each bucket, or -1
+	private long last; // the bits of the last key polled
+	private int size;
+
+
+	/**
+	 *
+	 * @param n the number of nodes in the graph
+	 */
+	public RadixHeapQueue(int n)
+	{
+		key = new long[n];
+		bucket = new int[n];
+		next = new int[n];
+		prev = new int[n];
+		head = new int[BUCKETS];
+		clear();
+	}
+
+	public void offer(int v, double k)
+	{
+		key[v] = Double.doubleToLongBits(k + 0.0); // + 0.0 makes -0.0 into 0.0
+		insert(v);
+		size++;
+	}
+
+	public void changeKey(int v, double k)
+	{
+		remove(v);
+		key[v] = Double.doubleToLongBits(k + 0.0);
+		insert(v);
+	}
+
+	public int poll()
+	{
+		if(head[0] == -1)
+		{
+			// find the lowest bucket with anything in it, and its smallest key
+			int b = 1;
+			while(head[b] == -1)
+				b++;
+
+			long min = Long.MAX_VALUE;
+			for(int v = head[b]; v != -1; v = next[v])
+			{
+				if(key[v] < min)
+					min = key[v];
+			}
+			last = min;
+
+			// now every node of that bucket belongs in a lower one
+			int v = head[b];
+			head[b] = -1;
+			while(v != -1)
+			{
+				int after = next[v];
+				insert(v);
+				v = after;
+			}
+		}
+
+		int v = head[0];
+		remove(v);
+		size--;
+
+		return v;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		for(int b = 0; b < BUCKETS; b++)
+			head[b] = -1;
+		last = 0;
+		size = 0;
+	}
+
+	private void insert(int v)
+	{
+		int b = (key[v] == last) ? 0 : 64 - Long.numberOfLeadingZeros(key[v] ^ last);
+
+		bucket[v] = b;
+		prev[v] = -1;
+		next[v] = head[b];
+		if(head[b] != -1)
+			prev[head[b]] = v;
+		head[b] = v;
+	}
+
+	private void remove(int v)
+	{
+		if(prev[v] != -1)
+			next[prev[v]] = next[v];
+		else
+			head[bucket[v]] = next[v];
+		if(next[v] != -1)
+			prev[next[v]] = prev[v];
+	}
+}
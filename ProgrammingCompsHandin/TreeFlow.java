@@ -0,0 +1,196 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The max flow on a shortest path tree in O(n) time. CompsMain.maxFlow walks from every leaf all the way up to the supply
+ * node, which takes as long as the depths of all of the leaves added up (O(n^2) on a tree that is one long path). Here the
+ * nodes are put in an order where every node comes before its predecessor (the reverse of a breadth-first order from the
+ * supply node), so one pass in that order can add the demand of each node's subtree into its predecessor, and the flow on
+ * the arc into a node is just the demand of its subtree.
+ *
+ * The order only depends on the tree, so it is found once and can be used for any number of demands. The demands are not
+ * changed.
+ *
+ * Like CompsMain.maxFlow, a node with a demand of -1 is treated as a supply node: nothing below it is added above it.
+ * The flows are the same as CompsMain.maxFlow, except that the demands are added up in a different order, so the last
+ * bits can be different.
+ *
+ */
+public class TreeFlow implements MaxFlow
+{
+	private static final int CHUNK = 1 << 16; // the fewest nodes worth giving to a thread of their own
+
+	private int start;
+	private int [] predecessor;
+	private int [] prevEdge;
+	private int [] order; // every node except the supply node, each one before its predecessor
+
+	private ExecutorService pool; // for finding lambda, or null to find it on this thread
+	private int parts; // the number of pieces the nodes are split into for finding lambda
+
+
+	/**
+	 * Finds the order of the nodes of a shortest path tree.
+	 *
+	 * @param start the supply node
+	 * @param predecessor the node before each node in the tree, or -1 if there is none
+	 * @param prevEdge the arc into each node in the tree
+	 * @param threads the number of threads to find lambda with (the threads are kept until close is called)
+	 */
+	public TreeFlow(int start, int [] predecessor, int [] prevEdge, int threads)
+	{
+		this.start = start;
+		this.predecessor = predecessor;
+		this.prevEdge = prevEdge;
+		int n_nodes = predecessor.length;
+
+		// the children of each node, the same way the arcs are stored: children[first[v]] to children[first[v + 1] - 1]
+		int [] first = new int[n_nodes + 1];
+		for(int v = 0; v < n_nodes; v++)
+		{
+			if(predecessor[v] != -1)
+				first[predecessor[v] + 1]++;
+			else if(v != start)
+			{
+				System.out.println("Error: Graph is not connected.");
+				System.exit(2);
+			}
+		}
+		for(int v = 0; v < n_nodes; v++)
+			first[v + 1] += first[v];
+
+		int [] children = new int[n_nodes];
+		int [] fill = Arrays.copyOf(first, n_nodes);
+		for(int v = 0; v < n_nodes; v++)
+		{
+			if(predecessor[v] != -1)
+				children[fill[predecessor[v]]++] = v;
+		}
+
+		// breadth-first from the supply node, then backwards
+		int [] bfs = new int[n_nodes];
+		bfs[0] = start;
+		int tail = 1;
+		for(int head = 0; head < tail; head++)
+		{
+			int v = bfs[head];
+			for(int c = first[v]; c < first[v + 1]; c++)
+				bfs[tail++] = children[c];
+		}
+
+		order = new int[tail - 1];
+		for(int i = 0; i < order.length; i++)
+			order[i] = bfs[tail - 1 - i];
+
+		parts = Math.min(threads, (order.length + CHUNK - 1) / CHUNK);
+		if(parts > 1)
+		{
+			pool = Executors.newFixedThreadPool(parts, new ThreadFactory() {
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "TreeFlow");
+					t.setDaemon(true); // so a TreeFlow that is not closed does not keep the program running
+					return t;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Finds the max flow for each arc.
+	 *
+	 * @param capacity an integer array containing the capacities for each of the arcs
+	 * @param demand the demand of each node
+	 * @return double array containing the maxFlow for each of the arcs
+	 */
+	public double [] maxFlow(final int [] capacity, final double [] demand)
+	{
+		final double [] totalDemand = new double[capacity.length];
+		double [] subtree = new double[predecessor.length]; // the demand of the subtree of each node, so far
+
+		for(int i = 0; i < order.length; i++)
+		{
+			int v = order[i];
+			if(demand[v] == -1) // the walks of CompsMain.maxFlow stop at a supply node
+				continue;
+
+			double d = subtree[v] + demand[v];
+			totalDemand[prevEdge[v]] = d;
+			subtree[predecessor[v]] += d;
+		}
+
+		double lambda = lambda(capacity, demand, totalDemand);
+
+		// maximize the flow by multiplying by lambda
+		for(int c = 0; c < totalDemand.length; c++)
+			totalDemand[c] = totalDemand[c]*lambda;
+
+		return totalDemand;
+	}
+
+	/**
+	 * The smallest capacity divided by flow of the arcs of the tree, found by splitting the nodes between the threads.
+	 */
+	private double lambda(final int [] capacity, final double [] demand, final double [] totalDemand)
+	{
+		if(pool == null)
+			return lambda(capacity, demand, totalDemand, 0, order.length);
+
+		try
+		{
+			ArrayList<Future<Double>> results = new ArrayList<Future<Double>>();
+			int part = (order.length + parts - 1) / parts;
+			for(int p = 0; p < parts; p++)
+			{
+				final int from = p * part;
+				final int to = Math.min(from + part, order.length);
+				results.add(pool.submit(new Callable<Double>() {
+					public Double call()
+					{
+						return lambda(capacity, demand, totalDemand, from, to);
+					}
+				}));
+			}
+
+			double lambda = Double.MAX_VALUE;
+			for(Future<Double> f : results)
+			{
+				double l = f.get();
+				if(l < lambda)
+					lambda = l;
+			}
+			return lambda;
+		}
+		catch(Exception e)
+		{
+			// cannot happen, but if it does, do it on this thread
+			return lambda(capacity, demand, totalDemand, 0, order.length);
+		}
+	}
+
+	private double lambda(int [] capacity, double [] demand, double [] totalDemand, int from, int to)
+	{
+		double lambda = Double.MAX_VALUE, compare;
+		for(int i = from; i < to; i++)
+		{
+			int v = order[i];
+			if(demand[v] == -1)
+				continue;
+
+			compare = ((double)capacity[prevEdge[v]]) / totalDemand[prevEdge[v]];
+			if(compare < lambda)
+				lambda = compare;
+		}
+
+		return lambda;
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void close()
+	{
+		if(pool != null)
+			pool.shutdown();
+	}
+}
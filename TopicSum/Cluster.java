@@ -11,26 +11,41 @@ public class Cluster
   private Document[] docs;
 	private int ndocs;
 
-	private Topic phic_0;
+	private Topic phic_0; // made the first time it is asked for, so clusters that are only folded in never need one
 	private Topic[] phic_k;
 	
-	private File clusterLoc;
+	private File clusterLoc; // null if the cluster was not read from a folder
+	private String name;
 	
 	public Cluster(File f)
 	{
 		clusterLoc = f;
+		name = f.getName();
 		ndocs = 0;
 		
 		docs = new Document[clusterLoc.listFiles().length];
 		
 		getDocs();
 		
-		// we don't want to make new topics until after the docs are read, or else the number of possible word types won't be correct
-		phic_0 = new Topic();
 		phic_k = new Topic[0]; // default is no subtopics
 		
 	}
 	
+	/**
+	 * A cluster of documents that are already in memory.
+	 * 
+	 * @param name the name of the cluster
+	 * @param docs the documents in the cluster
+	 */
+	public Cluster(String name, Document[] docs)
+	{
+		this.name = name;
+		this.docs = docs;
+		ndocs = docs.length;
+		
+		phic_k = new Topic[0];
+	}
+	
 	private void getDocs()
 	{
 		
@@ -58,6 +73,9 @@ public class Cluster
 	 */
 	public void setSubtopics(int K)
 	{
+		// subtopic k is assigned to tokens as Topic.CONTENTSPECIFIC + k
+		TopicStore.getInstance().ensureTopics(Topic.CONTENTSPECIFIC + K);
+		
 		phic_k = new Topic[K];
 		
 		for(int k = 0; k < K; k++)
@@ -66,12 +84,29 @@ public class Cluster
 		}
 	}
 	
+	/**
+	 * Throw away the topics of this cluster and its documents, so they are made again at the current 
+	 * number of word types.
+	 */
+	public void resetTopics()
+	{
+		for(int di = 0; di < ndocs; di++)
+			docs[di].resetTopics();
+		
+		phic_0 = null;
+		setSubtopics(phic_k.length);
+	}
+	
 	/**
 	 * 
 	 * @return The general content distribution.
 	 */
 	public Topic phic()
 	{
+		// we don't want to make the topic until after the docs are read, or else the number of possible word types won't be correct
+		if(phic_0 == null)
+			phic_0 = new Topic();
+		
 		return phic_0;
 	}
 	
@@ -96,7 +131,7 @@ public class Cluster
 	
 	public String getName()
 	{
-		return clusterLoc.getName();
+		return name;
 	}
 	
 }
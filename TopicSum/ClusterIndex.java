@@ -0,0 +1,145 @@
+import java.util.*;
+
+/**
+ * An inverted index from word types to the sentences of a cluster that contain them.
+ *
+ * For query-focused summaries, only the sentences that share a word with the query or with
+ * the most likely words of the content distribution need to be scored; the index finds them
+ * without looking at the rest of the cluster.
+ *
+ * @author rebecca
+ *
+ */
+public class ClusterIndex
+{
+	private ArrayList<Sentence> sents;
+	private HashMap<Integer, int[]> postings; // word type -> indices of the sentences that contain it, in order
+
+
+	/**
+	 *
+	 * @param sents the sentences of the cluster
+	 */
+	public ClusterIndex(ArrayList<Sentence> sents)
+	{
+		this.sents = sents;
+
+		// count the sentences for each type, then fill in the postings
+		HashMap<Integer, Integer> df = new HashMap<Integer, Integer>();
+		for(int si = 0; si < sents.size(); si++)
+		{
+			Sentence s = sents.get(si);
+			for(int wi = 0; wi < s.nwords(); wi++)
+			{
+				if(!contains(s, wi))
+				{
+					Integer n = df.get(s.getType(wi));
+					df.put(s.getType(wi), n == null ? 1 : n + 1);
+				}
+			}
+		}
+
+		postings = new HashMap<Integer, int[]>();
+		HashMap<Integer, Integer> filled = new HashMap<Integer, Integer>();
+		for(int si = 0; si < sents.size(); si++)
+		{
+			Sentence s = sents.get(si);
+			for(int wi = 0; wi < s.nwords(); wi++)
+			{
+				int type = s.getType(wi);
+				if(contains(s, wi))
+					continue;
+
+				int[] p = postings.get(type);
+				if(p == null)
+				{
+					p = new int[df.get(type)];
+					postings.put(type, p);
+					filled.put(type, 0);
+				}
+				int n = filled.get(type);
+				p[n] = si;
+				filled.put(type, n + 1);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the type of word wi also appears earlier in the sentence
+	 */
+	private static boolean contains(Sentence s, int wi)
+	{
+		for(int i = 0; i < wi; i++)
+		{
+			if(s.getType(i) == s.getType(wi))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 *
+	 * @param type a word type
+	 * @return the indices of the sentences that contain the type, in order
+	 */
+	public int[] postings(int type)
+	{
+		int[] p = postings.get(type);
+		if(p == null)
+			return new int[0];
+		else
+			return p;
+	}
+
+	/**
+	 *
+	 * @param types word types
+	 * @return the sentences that contain at least one of the types, in the same order as in the cluster
+	 */
+	public ArrayList<Sentence> reach(Collection<Integer> types)
+	{
+		boolean[] reached = new boolean[sents.size()];
+		for(int type : types)
+		{
+			for(int si : postings(type))
+				reached[si] = true;
+		}
+
+		ArrayList<Sentence> reachedSents = new ArrayList<Sentence>();
+		for(int si = 0; si < sents.size(); si++)
+		{
+			if(reached[si])
+				reachedSents.add(sents.get(si));
+		}
+
+		return reachedSents;
+	}
+
+	/**
+	 *
+	 * @param d a distribution
+	 * @param k how many types to find
+	 * @return the k most likely types of the distribution that appear in the cluster
+	 */
+	public List<Integer> peak(Distribution d, int k)
+	{
+		final Distribution dist = d;
+		PriorityQueue<Integer> top = new PriorityQueue<Integer>(k + 1, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				return Double.compare(dist.pw(a), dist.pw(b));
+			}
+		});
+
+		for(int type : postings.keySet())
+		{
+			top.offer(type);
+			if(top.size() > k)
+				top.poll();
+		}
+
+		return new ArrayList<Integer>(top);
+	}
+}
@@ -21,6 +21,19 @@ public class Corpus
 		phib = new Topic();
 	}
 	
+	/**
+	 * A corpus of clusters that are already in memory (see CorpusBuilder).
+	 * 
+	 * @param clusters the clusters
+	 */
+	public Corpus(Cluster[] clusters)
+	{
+		this.clusters = clusters;
+		nclusters = clusters.length;
+		
+		phib = new Topic();
+	}
+	
 	private void getClusters()
 	{
 		for(int ci = 0; ci < nclusters; ci++)
@@ -44,6 +57,18 @@ public class Corpus
 		return clusters;
 	}
 	
+	/**
+	 * Rebuild all of the topics in the corpus at the current number of word types.
+	 * Call this after the vocabulary changes (see VocabPruner).
+	 */
+	public void resetTopics()
+	{
+		for(int ci = 0; ci < nclusters; ci++)
+			clusters[ci].resetTopics();
+		
+		phib = new Topic();
+	}
+	
 	/**
 	 * 
 	 * @return The background word distribution for this corpus.
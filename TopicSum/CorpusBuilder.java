@@ -0,0 +1,143 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Builds a corpus (or a single cluster) from documents that are already in memory, instead of
+ * reading them from a folder on disk. Sentences can be given as a list, as text with one 
+ * sentence per line, or as a Reader.
+ * 
+ * The documents are read in when they are added, and the clusters and the corpus are made 
+ * in build(), so the topics are made after the words are read in, the same as when the 
+ * corpus is read from files.
+ * 
+ * @author rebecca
+ *
+ */
+public class CorpusBuilder 
+{
+	private LinkedHashMap<String, ArrayList<Document>> clusters; // the documents of each cluster, in the order they were added
+	private boolean addTypes;
+	private TopicStore topics;
+	
+	public CorpusBuilder()
+	{
+		clusters = new LinkedHashMap<String, ArrayList<Document>>();
+		addTypes = true;
+		topics = TopicStore.getInstance();
+	}
+	
+	/**
+	 * Do not add new words to the vocabulary; words that are not already in it are left out. 
+	 * Use this for clusters that are folded in to a model that has already been estimated.
+	 * 
+	 * @return this builder
+	 */
+	public CorpusBuilder frozenVocabulary()
+	{
+		addTypes = false;
+		return this;
+	}
+	
+	/**
+	 * Keep the topics of the sentences in this store instead of the shared one.
+	 * 
+	 * @param topics the topic store
+	 * @return this builder
+	 */
+	public CorpusBuilder topicStore(TopicStore topics)
+	{
+		this.topics = topics;
+		return this;
+	}
+	
+	/**
+	 * 
+	 * @param cluster the name of the cluster the document is in
+	 * @param doc the name of the document
+	 * @param sentences the sentences of the document; blank ones are skipped
+	 * @return this builder
+	 */
+	public CorpusBuilder addDocument(String cluster, String doc, Iterable<String> sentences)
+	{
+		ArrayList<Document> docs = clusters.get(cluster);
+		if(docs == null)
+		{
+			docs = new ArrayList<Document>();
+			clusters.put(cluster, docs);
+		}
+		
+		docs.add(new Document(doc, sentences, addTypes, topics));
+		return this;
+	}
+	
+	/**
+	 * 
+	 * @param cluster the name of the cluster the document is in
+	 * @param doc the name of the document
+	 * @param text the text of the document, one sentence per line
+	 * @return this builder
+	 */
+	public CorpusBuilder addDocument(String cluster, String doc, String text)
+	{
+		return addDocument(cluster, doc, Arrays.asList(text.split("\n")));
+	}
+	
+	/**
+	 * 
+	 * @param cluster the name of the cluster the document is in
+	 * @param doc the name of the document
+	 * @param in the text of the document, one sentence per line
+	 * @return this builder
+	 */
+	public CorpusBuilder addDocument(String cluster, String doc, Reader in)
+	{
+		ArrayList<String> lines = new ArrayList<String>();
+		try
+		{
+			BufferedReader br = new BufferedReader(in);
+			String line;
+			while((line = br.readLine()) != null)
+				lines.add(line);
+			br.close();
+		}
+		catch(IOException e)
+		{
+			System.err.println("Error reading document " + doc + ":");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+		
+		return addDocument(cluster, doc, lines);
+	}
+	
+	/**
+	 * 
+	 * @param cluster the name of the cluster
+	 * @return the cluster, or null if no documents were added to it
+	 */
+	public Cluster buildCluster(String cluster)
+	{
+		ArrayList<Document> docs = clusters.get(cluster);
+		if(docs == null)
+			return null;
+		
+		return new Cluster(cluster, docs.toArray(new Document[docs.size()]));
+	}
+	
+	/**
+	 * 
+	 * @return a corpus of all the clusters, in the order they were first added to
+	 */
+	public Corpus build()
+	{
+		Cluster[] c = new Cluster[clusters.size()];
+		int ci = 0;
+		for(String name : clusters.keySet())
+		{
+			c[ci] = buildCluster(name);
+			ci++;
+		}
+		
+		return new Corpus(c);
+	}
+}
@@ -0,0 +1,170 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Off-heap storage for the word counts of the topics.
+ *
+ * With a large vocabulary and many clusters, the count arrays of the content and document
+ * topics make the heap very large and the garbage collector slow while sampling. When an
+ * arena is set up, every new Topic takes its counts from it instead of the heap. The counts
+ * live in large direct buffers, or in buffers mapped from a file.
+ *
+ * Direct buffers are limited by -XX:MaxDirectMemorySize, which is the size of the heap unless
+ * it is set, so they keep the counts away from the garbage collector but do not make room for
+ * more of them. Only the counts mapped from a file can be bigger than the heap.
+ *
+ * The arena has to be set up before the corpus is read, since topics are made while reading.
+ * Counts are never given back one topic at a time: a topic that is thrown away keeps its space
+ * until reset is called, which hands all of the space out again from the start.
+ *
+ * @author rebecca
+ *
+ */
+public class CountArena
+{
+	private static CountArena ref;
+
+	private static final int BLOCK = 1 << 28; // the size of each buffer, in bytes
+
+	private RandomAccessFile file; // the file the buffers are mapped from, or null for direct buffers
+	private long fileSize;
+
+	private ArrayList<ByteBuffer> blocks; // every buffer made so far, in the order they are handed out
+	private int current; // the index of the buffer we are currently handing out counts from
+	private ByteBuffer block; // blocks.get(current), or null before the first one
+	private long allocated; // total bytes handed out
+
+
+	private CountArena(File f)
+	{
+		if(f != null)
+		{
+			try
+			{
+				file = new RandomAccessFile(f, "rw");
+				file.setLength(0);
+			}
+			catch(Exception e)
+			{
+				System.err.println("Error opening count file " + f.toString() + ":");
+				System.err.println(e.toString());
+				System.exit(1);
+			}
+			f.deleteOnExit();
+		}
+
+		fileSize = 0;
+		blocks = new ArrayList<ByteBuffer>();
+		current = -1;
+		block = null;
+		allocated = 0;
+	}
+
+	/**
+	 * Keep the topic counts in direct buffers, off of the heap.
+	 */
+	public static void useDirect()
+	{
+		ref = new CountArena(null);
+	}
+
+	/**
+	 * Keep the topic counts in buffers mapped from a file. The file is deleted when the program exits.
+	 *
+	 * @param f the file to map the counts from
+	 */
+	public static void useFile(File f)
+	{
+		ref = new CountArena(f);
+	}
+
+	/**
+	 *
+	 * @return the arena that new topics take their counts from, or null if the counts are on the heap
+	 */
+	public static CountArena getInstance()
+	{
+		return ref;
+	}
+
+	/**
+	 * Get space for n counts, all set to zero.
+	 *
+	 * @param n the number of counts
+	 * @return a buffer of n counts
+	 */
+	public synchronized IntBuffer allocate(int n)
+	{
+		int bytes = n * 4;
+		while(block == null || block.remaining() < bytes)
+		{
+			// use the next buffer left from before a reset, or make a new one
+			current++;
+			if(current == blocks.size())
+				blocks.add(newBlock(Math.max(BLOCK, bytes)));
+			block = blocks.get(current);
+		}
+
+		ByteBuffer slice = block.slice();
+		slice.limit(bytes);
+		block.position(block.position() + bytes);
+		allocated += bytes;
+
+		return slice.order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	private ByteBuffer newBlock(int size)
+	{
+		if(file == null)
+			return ByteBuffer.allocateDirect(size);
+
+		try
+		{
+			// the file is extended with zeros, so the new counts start at zero
+			ByteBuffer b = file.getChannel().map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+			fileSize += size;
+			return b;
+		}
+		catch(Exception e)
+		{
+			System.err.println("Error mapping the count file:");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Set every count back to zero and hand out the space again from the start, so that rebuilding
+	 * the topics (see VocabPruner) does not take new space. Every topic that took counts from this 
+	 * arena has to be thrown away first, since its counts will be given to new topics.
+	 */
+	public synchronized void reset()
+	{
+		for(ByteBuffer b : blocks)
+		{
+			b.clear();
+			while(b.remaining() >= 8)
+				b.putLong(0);
+			while(b.hasRemaining())
+				b.put((byte)0);
+			b.clear();
+		}
+
+		current = -1;
+		block = null;
+		allocated = 0;
+	}
+
+	/**
+	 *
+	 * @return the number of bytes of counts handed out by this arena
+	 */
+	public long allocated()
+	{
+		return allocated;
+	}
+}
@@ -3,41 +3,105 @@ import java.util.*;
 
 public class Document 
 {
-	private File docLoc;
+	private File docLoc; // null if the document was not read from a file
+	private String name;
 	private Sentence[] sents;
 	private int nsents;
 	
-	private Topic phid;
+	private Topic phid; // made the first time it is asked for, so documents that are only folded in never need one
 	
 	public Document(File f)
 	{
 		docLoc = f;
+		name = f.getName();
 		
 		getSents();
-		
-		// do not create new topics until after we get sentences!
-		phid = new Topic();
 	}
 	
-	private void getSents()
+	/**
+	 * A document made from sentences that are already in memory. 
+	 * 
+	 * @param name the name of the document
+	 * @param lines the sentences of the document; blank lines are skipped
+	 * @param addTypes true to add new words to the vocabulary, false to leave out words that are not in it
+	 * @param topics the store to keep the topics of the tokens in
+	 */
+	public Document(String name, Iterable<String> lines, boolean addTypes, TopicStore topics)
 	{
-		FileUtil docFile = new FileUtil(docLoc);
+		this.name = name;
 		
 		ArrayList<Sentence> sents = new ArrayList<Sentence>();
-		while(docFile.ready())
+		for(String line : lines)
 		{
-			String in = docFile.readLine().trim();
+			String in = line.trim();
 			if(!in.equals(""))
 			{
-				sents.add(new Sentence(in, nsents, this));
+				int[] tokens = addTypes ? TextUtil.readSent(in) : TextUtil.readKnownSent(in);
+				sents.add(new Sentence(in, tokens, nsents, this, topics));
 				nsents ++;
 			}
 		}
 		
 		this.sents = new Sentence[nsents];
 		sents.toArray(this.sents);
+	}
+	
+	/**
+	 * Read the sentences, one per line. The sentences only keep the offset and length of their line 
+	 * in the file; the text is read back in when it is needed (see TextCache).
+	 */
+	private void getSents()
+	{
+		byte[] b = FileUtil.readBytes(docLoc);
+		if(b == null)
+			System.exit(1);
+		
+		ArrayList<Sentence> sents = new ArrayList<Sentence>();
+		int start = 0;
+		while(start < b.length)
+		{
+			// find the end of the line
+			int end = start;
+			while(end < b.length && b[end] != '\n' && b[end] != '\r')
+				end++;
+			
+			// trim the whitespace the same way String.trim does
+			int first = start;
+			int last = end;
+			while(first < last && (b[first] & 0xff) <= ' ')
+				first++;
+			while(last > first && (b[last - 1] & 0xff) <= ' ')
+				last--;
+			
+			if(last > first)
+			{
+				String in = new String(b, first, last - first);
+				sents.add(new Sentence(in, first, last - first, nsents, this));
+				nsents ++;
+			}
+			
+			start = end + 1;
+		}
 		
-		docFile.closeFile();
+		this.sents = new Sentence[nsents];
+		sents.toArray(this.sents);
+	}
+	
+	/**
+	 * 
+	 * @return the file this document was read from, or null if it was made in memory
+	 */
+	public File getFile()
+	{
+		return docLoc;
+	}
+	
+	/**
+	 * Throw away the topic of this document, so it is made again at the current number of word types.
+	 */
+	public void resetTopics()
+	{
+		phid = null;
 	}
 	
 	/**
@@ -46,6 +110,10 @@ public class Document
 	 */
 	public Topic phid()
 	{
+		// do not create the topic until after we get sentences!
+		if(phid == null)
+			phid = new Topic();
+		
 		return phid;
 	}
 	
@@ -76,6 +144,6 @@ public class Document
 	 */
 	public String toString()
 	{
-		return docLoc.getName();
+		return name;
 	}
 }
@@ -121,6 +121,55 @@ public class FileUtil
 		}
 	}
 
+	/**
+	 * 
+	 * @param f the file to read
+	 * @return the contents of the file, or null if it could not be read
+	 */
+	public static byte[] readBytes(File f)
+	{
+		try
+		{
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			byte[] b = new byte[(int)raf.length()];
+			raf.readFully(b);
+			raf.close();
+			return b;
+		}
+		catch (Exception e)
+		{
+			System.err.println("FileUtil readBytes error, file:  " + f.getName());
+			System.err.println(e.toString());
+			return null;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param f the file to read
+	 * @param start the byte offset to start reading from
+	 * @param length the number of bytes to read
+	 * @return the bytes, or null if they could not be read
+	 */
+	public static byte[] readBytes(File f, long start, int length)
+	{
+		try
+		{
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			byte[] b = new byte[length];
+			raf.seek(start);
+			raf.readFully(b);
+			raf.close();
+			return b;
+		}
+		catch (Exception e)
+		{
+			System.err.println("FileUtil readBytes error, file:  " + f.getName());
+			System.err.println(e.toString());
+			return null;
+		}
+	}
+
 	/**
 	 * 
 	 * @param f
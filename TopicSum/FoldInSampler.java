@@ -0,0 +1,178 @@
+import java.util.*;
+
+/**
+ * Samples the topics of a new cluster against a model that has already been estimated.
+ * 
+ * The background topic of the model is held fixed, and only the content topic of the new 
+ * cluster and the topics of its documents are sampled, the same way as in Sampler. Nothing 
+ * in the model is changed, so several clusters can be folded in at the same time.
+ * 
+ * The sentences of the new cluster should keep their topics in their own TopicStore.
+ * 
+ *
+ */
+public class FoldInSampler 
+{
+	private Random r;
+	
+	private double alphab;
+	private double alphac;
+	private double alphad;
+	
+	private double betab;
+	private double betac;
+	private double betad;
+	
+	private Topic btopic; // from the model, never changed here
+	private Topic ctopic;
+	private Topic [] dtopic;
+	
+	private Cluster cluster;
+	private int ntypes;
+	
+	
+	/**
+	 * 
+	 * @param model the estimated model
+	 * @param c the new cluster
+	 * @param seed the seed for the random number generator
+	 */
+	public FoldInSampler(Sampler model, Cluster c, long seed)
+	{
+		cluster = c;
+		ntypes = TextUtil.getInstance().ntypes();
+		r = new Random(seed);
+		
+		double[] hyper = model.hyperparameters();
+		alphab = hyper[0];
+		alphac = hyper[1];
+		alphad = hyper[2];
+		betab = hyper[3];
+		betac = hyper[4];
+		betad = hyper[5];
+		
+		btopic = model.btopic();
+		ctopic = new Topic();
+		dtopic = new Topic[cluster.ndocs()];
+		for(int di = 0; di < cluster.ndocs(); di++)
+			dtopic[di] = new Topic();
+		
+		randominit();
+	}
+	
+	/**
+	 * assign the content and document topics randomly, and leave the rest as background
+	 */
+	private void randominit()
+	{
+		for(int di = 0; di < cluster.ndocs(); di++)
+		{
+			Document doc = cluster.getDoc(di);
+			for(int si = 0; si < doc.nsents(); si++)
+			{
+				Sentence s = doc.getSent(si);
+				for(int wi = 0; wi < s.nwords(); wi++)
+				{
+					double rand = r.nextDouble();
+					
+					if(rand > 0.666666)
+						s.setTopic(wi, Topic.BACKGROUND);
+					else if(rand > 0.333333)
+					{
+						s.setTopic(wi, Topic.CONTENT);
+						ctopic.incrementTypeCount(s.getType(wi));
+					}
+					else
+					{
+						s.setTopic(wi, Topic.DOCUMENT);
+						dtopic[di].incrementTypeCount(s.getType(wi));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param iterations the number of iterations to sample
+	 */
+	public void estimate(int iterations)
+	{
+		for(int i = 0; i < iterations; i++)
+			iteration(false);
+		
+		iteration(true);
+	}
+	
+	private void iteration(boolean lastIteration)
+	{
+		for(int di = 0; di < cluster.ndocs(); di++)
+		{
+			for(int si = 0; si < cluster.getDoc(di).nsents(); si++)
+				sampleSentence(di, cluster.getDoc(di).getSent(si), lastIteration);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param di document index
+	 * @param s the sentence
+	 * @param lastIteration false if sample the topic randomly, true if we just pick the most likely topics
+	 */
+	private void sampleSentence(int di, Sentence s, boolean lastIteration)
+	{
+		Topic b = btopic;
+		Topic c = ctopic;
+		Topic d = dtopic[di];
+		
+		for(int ti = 0; ti < s.nwords(); ti++)
+		{
+			double bands = (double)s.count(Topic.BACKGROUND) + alphab;
+			double cands = (double)s.count(Topic.CONTENT) + alphac;
+			double dands = (double)s.count(Topic.DOCUMENT) + alphad;
+			
+			// remove this token from the topic counts; the background counts are fixed
+			int type = s.getType(ti);
+			if(s.getTopic(ti) == Topic.BACKGROUND)
+				bands = bands - 1.0;
+			else if(s.getTopic(ti) == Topic.CONTENT)
+			{
+				c.decrementTypeCount(type);
+				cands = cands - 1.0;
+			}
+			else if(s.getTopic(ti) == Topic.DOCUMENT)
+			{
+				d.decrementTypeCount(type);
+				dands = dands - 1.0;
+			}
+			
+			int sample = Sampler.sampleTopic(type, b, c, d, bands, cands, dands, betab, betac, betad, ntypes, r, lastIteration);
+			
+			s.setTopic(ti, sample);
+			
+			if(sample == Topic.CONTENT)
+				c.incrementTypeCount(type);
+			else if(sample == Topic.DOCUMENT)
+				d.incrementTypeCount(type);
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the content topic of the new cluster
+	 */
+	public Topic ctopic()
+	{
+		return ctopic;
+	}
+	
+	/**
+	 * 
+	 * @param d the document
+	 * @return the topic of document d of the new cluster
+	 */
+	public Topic dtopic(int d)
+	{
+		return dtopic[d];
+	}
+}
@@ -32,11 +32,37 @@ import java.util.*;
  * scores significantly, though in our workshop paper we put this on top of HierSum, 
  * not TopicSum)
  * 
+ * Optional settings are passed as system properties (java -Dname=value Main ...):
+ * 
+ * topicsum.input       "lines" (default) for one sentence per line, or "sgml" for raw DUC/TREC SGML files (see SgmlReader)
+ * topicsum.minCount    prune word types that occur fewer times than this (default 1, keep everything)
+ * topicsum.maxDocFreq  prune word types that occur in more than this fraction of documents (default 1.0)
+ * topicsum.stopwords   file with one stopword per line to prune
+ * topicsum.offheap     set to true to keep the topic word counts off of the heap
+ * topicsum.offheapFile keep the off-heap counts in buffers mapped from this file instead of memory
+ * topicsum.seed        seed for the sampler's random number generator
+ * topicsum.chains      number of Gibbs chains to run in parallel (default 1)
+ * topicsum.chainMode   "best" to keep the chain with the best log-likelihood (default), or "average"
+ *                      (the counts are averaged, but the sentences keep the best chain's topics)
+ * topicsum.topWords    file to write the top words of the background and cluster topics to
+ * topicsum.topN        number of top words for each topic (default 25)
+ * topicsum.topWordsDocs set to true to also write the top words of the document topics
+ * topicsum.dedup       remove near-duplicate sentences from the candidates, at this similarity (e.g. 0.8)
+ * topicsum.budgets     lengths of the summaries to write for each cluster, e.g. 100,250,400 (default 250)
+ * topicsum.budgetUnit  "words" (default) or "bytes"
+ * topicsum.queries     file of queries, one per line as: cluster name, a tab, then the topic statement
+ * topicsum.queryWeight how much weight the query gets in the content distribution (default 0.5)
+ * topicsum.queryPeak   how many of the most likely content words also select candidates (default 50)
+ * topicsum.output      where the summaries go, any of "stdout", "files" (in the output folder) and "jsonl" (default stdout,files)
+ * topicsum.jsonl       the file for the JSON lines summaries (default summaries.jsonl in the output folder)
+ * topicsum.outputQueue the most summaries that can wait to be written (default 256)
+ * 
  * @author rebecca
  *
  */
 public class Main 
 {
+	public static final int SUMMARY_WORDS = 250; // the length of the summaries, in words
 	
 	public static void main(String[] args)
 	{
@@ -63,42 +89,129 @@ public class Main
 			}
 		}
 
-		Corpus corpus = new Corpus(corpusLoc);
+		// the topics are made while the corpus is read, so set up where their counts go first
+		if(System.getProperty("topicsum.offheapFile") != null)
+			CountArena.useFile(new File(System.getProperty("topicsum.offheapFile")));
+		else if(Boolean.getBoolean("topicsum.offheap"))
+			CountArena.useDirect();
+		
+		Corpus corpus;
+		if(System.getProperty("topicsum.input", "lines").equals("sgml"))
+			corpus = SgmlReader.readCorpus(corpusLoc);
+		else
+			corpus = new Corpus(corpusLoc);
+		
+		// prune the vocabulary before building the sampler, since it sizes its topics by the number of types
+		int minCount = Integer.getInteger("topicsum.minCount", 1);
+		double maxDocFreq = Double.parseDouble(System.getProperty("topicsum.maxDocFreq", "1.0"));
+		String stopwords = System.getProperty("topicsum.stopwords");
+		if(minCount > 1 || maxDocFreq < 1.0 || stopwords != null)
+		{
+			System.out.println("Pruning the vocabulary...");
+			VocabPruner pruner = new VocabPruner(minCount, maxDocFreq);
+			if(stopwords != null)
+				pruner.readStopwords(new File(stopwords));
+			pruner.prune(corpus);
+		}
 		
 		//build the sampler
 		System.out.println("Building the model...");
-		Sampler sampler = new Sampler(corpus);
-		sampler.estimate(iterations, 10);
+		long seed = Long.getLong("topicsum.seed", new Random().nextLong());
+		int nchains = Integer.getInteger("topicsum.chains", 1);
+		if(nchains > 1)
+		{
+			MultiChainSampler chains = new MultiChainSampler(corpus, nchains, seed, System.getProperty("topicsum.chainMode", "best").equals("average"));
+			chains.estimate(iterations, 10);
+			chains.saveCounts();
+		}
+		else
+		{
+			Sampler sampler = new Sampler(corpus, seed);
+			sampler.estimate(iterations, 10);
+			sampler.saveCounts();
+		}
+		if(CountArena.getInstance() != null)
+			System.out.println(String.format("Off-heap topic counts: %.1f MB", ((double)CountArena.getInstance().allocated()) / (1024.0 * 1024.0)));
 		
-		/*
 		// for debugging the sampler
-		System.out.println("Top 25 background words:");
-		printTop25(sampler.phib());
+		if(System.getProperty("topicsum.topWords") != null)
+		{
+			TopWords top = new TopWords(corpus, Integer.getInteger("topicsum.topN", 25), Boolean.getBoolean("topicsum.topWordsDocs"));
+			top.write(new File(System.getProperty("topicsum.topWords")), Runtime.getRuntime().availableProcessors());
+		}
 		
-		System.out.println();
-		System.out.println("Top 25 cluster 0 words:");
-		printTop25(sampler.phic(0));
 		
-		System.out.println();
-		System.out.println("Top 25 cluster 0, doc 0 words:");
-		printTop25(sampler.phid(0,0));
-		*/
+		NearDuplicates dedup = null;
+		if(System.getProperty("topicsum.dedup") != null)
+			dedup = new NearDuplicates(16, 4, Double.parseDouble(System.getProperty("topicsum.dedup")));
 		
+		int[] budgets = {SUMMARY_WORDS};
+		if(System.getProperty("topicsum.budgets") != null)
+		{
+			String[] b = System.getProperty("topicsum.budgets").split(",");
+			budgets = new int[b.length];
+			for(int bi = 0; bi < b.length; bi++)
+				budgets[bi] = Integer.parseInt(b[bi].trim());
+		}
+		boolean bytes = System.getProperty("topicsum.budgetUnit", "words").equals("bytes");
+		
+		// query-focused summaries for the clusters that have a query
+		HashMap<String, String> queries = new HashMap<String, String>();
+		if(System.getProperty("topicsum.queries") != null)
+		{
+			FileUtil queryFile = new FileUtil(new File(System.getProperty("topicsum.queries")));
+			while(queryFile.ready())
+			{
+				String[] q = queryFile.readLine().split("\t", 2);
+				if(q.length == 2)
+					queries.put(q[0].trim(), q[1]);
+			}
+			queryFile.closeFile();
+		}
+		double queryWeight = Double.parseDouble(System.getProperty("topicsum.queryWeight", "0.5"));
+		int queryPeak = Integer.getInteger("topicsum.queryPeak", 50);
+		
+		// the summaries are ordered and written on another thread
+		String[] outputs = System.getProperty("topicsum.output", "stdout,files").split(",");
+		boolean stdout = false;
+		File jsonl = null;
+		File filesLoc = null;
+		for(String output : outputs)
+		{
+			if(output.trim().equals("stdout"))
+				stdout = true;
+			else if(output.trim().equals("files"))
+				filesLoc = summLoc;
+			else if(output.trim().equals("jsonl"))
+				jsonl = new File(System.getProperty("topicsum.jsonl", summLoc == null ? "summaries.jsonl" : new File(summLoc, "summaries.jsonl").getPath()));
+		}
+		SummarySink sink = new SummarySink(stdout, filesLoc, jsonl, Integer.getInteger("topicsum.outputQueue", 256));
 		
 		//do the sentence selection and build the summaries
 		System.out.println("Writing summaries");
 		for(int ci = 0; ci < corpus.nclusters(); ci++)
 		{
 			
-			ArrayList<Sentence> summarySents = summarizeCluster(corpus.getCluster(ci), Sampler.getDist(corpus.getCluster(ci).phic(), 0.001), Sampler.getDist(corpus.phib(), 1.0));
-			String summary = basicSentOrdering(summarySents);
-			
-			if(summLoc != null)
-				FileUtil.writeTextFile(new File(summLoc, corpus.getCluster(ci).getName()), summary);			
-
-			System.out.println(summary);
+			Cluster c = corpus.getCluster(ci);
+			List<ArrayList<Sentence>> summaries;
+			if(queries.containsKey(c.getName()))
+				summaries = summarizeQuery(c, queries.get(c.getName()), Sampler.getDist(c.phic(), 0.001), queryWeight, queryPeak, dedup, budgets, bytes);
+			else
+				summaries = summarizeCluster(c, Sampler.getDist(c.phic(), 0.001), Sampler.getDist(corpus.phib(), 1.0), dedup, budgets, bytes);
+			for(int bi = 0; bi < budgets.length; bi++)
+			{
+				// with more than one budget, each summary file is named for its length
+				String name = c.getName();
+				if(budgets.length > 1)
+					name = name + "." + budgets[bi];
+				
+				sink.put(c.getName(), budgets[bi], name, summaries.get(bi));
+			}
 		}
+		sink.close();
 		System.out.println();
+		if(dedup != null)
+			System.out.println(dedup.stats());
 		System.out.println("done");
 		
 		
@@ -113,38 +226,8 @@ public class Main
 	 */
 	public static void printTop25(Distribution d)
 	{
-		boolean[] beenused = new boolean[TextUtil.getInstance().ntypes()];
-		
-		for(boolean b : beenused)
-			b = false;
-		
-		// for every type of word, find the largest 25
-		for(int c = 0; c < 25; c++)
-		{
-			int largest = -1;
-			double plargest = 0.0;
-			for(int i = 0; i < TextUtil.getInstance().ntypes(); i++)
-			{
-				if(d.pw(i) > plargest && !beenused[i])
-				{
-					plargest = d.pw(i);
-					largest = i;
-				}
-			}
-			
-			if(largest == -1)
-			{
-				System.out.println("Nothing is larger than 0.");
-				break;
-			}
-			
-			// mark the word as used
-			beenused[largest] = true;
-			
-			// print it out
-			System.out.println(TextUtil.getInstance().getString(largest) + " " + plargest);
-			
-		}
+		for(int type : TopWords.top(d, 25))
+			System.out.println(TextUtil.getInstance().getString(type) + " " + d.pw(type));
 	}
 	
 
@@ -209,14 +292,111 @@ public class Main
 	 * @return the summary of the cluster
 	 */
 	public static ArrayList<Sentence> summarizeCluster(Cluster c, Distribution phic, Distribution phib)
+	{
+		return summarizeCluster(c, phic, phib, null);
+	}
+	
+	/**
+	 * Standard sentence selection, after removing near-duplicate sentences from the candidates
+	 * 
+	 * @param c cluster to summarize
+	 * @param phic distribution of content words
+	 * @param phib distribution of background words
+	 * @param dedup finds the near-duplicate sentences, or null to keep all of the sentences
+	 * @return the summary of the cluster
+	 */
+	public static ArrayList<Sentence> summarizeCluster(Cluster c, Distribution phic, Distribution phib, NearDuplicates dedup)
+	{
+		return summarizeCluster(c, phic, phib, dedup, new int[] {SUMMARY_WORDS}, false).get(0);
+	}
+	
+	/**
+	 * Build summaries of several lengths with a single pass of sentence selection. The greedy selection 
+	 * always adds to the summary it has so far, so each summary is a prefix of the same sequence of 
+	 * selected sentences: the shortest prefix that reaches its budget.
+	 * 
+	 * @param c cluster to summarize
+	 * @param phic distribution of content words
+	 * @param phib distribution of background words
+	 * @param dedup finds the near-duplicate sentences, or null to keep all of the sentences
+	 * @param budgets the lengths of the summaries
+	 * @param bytes true if the budgets are in bytes of the original sentences, false if they are in words
+	 * @return the summary for each budget, in the same order as the budgets
+	 */
+	public static List<ArrayList<Sentence>> summarizeCluster(Cluster c, Distribution phic, Distribution phib, NearDuplicates dedup, int[] budgets, boolean bytes)
 	{
 		ArrayList<Sentence> sents = getSents(c); // the sentences from the cluster
+		if(dedup != null)
+			sents = dedup.prune(sents);
+		
+		return selectSentences(sents, phic, budgets, bytes);
+	}
+	
+	/**
+	 * Query-focused sentence selection. The query distribution is mixed into the content distribution, 
+	 * and only the sentences that share a word with the query or with the most likely content words 
+	 * are candidates; the rest of the cluster is never scored.
+	 * 
+	 * @param c cluster to summarize
+	 * @param query the query (topic statement) for the cluster
+	 * @param phic distribution of content words
+	 * @param lambda how much weight the query gets in the mixture, between 0 and 1
+	 * @param npeak how many of the most likely content words can also reach candidates
+	 * @param dedup finds the near-duplicate sentences, or null to keep all of the sentences
+	 * @param budgets the lengths of the summaries
+	 * @param bytes true if the budgets are in bytes of the original sentences, false if they are in words
+	 * @return the summary for each budget, in the same order as the budgets
+	 */
+	public static List<ArrayList<Sentence>> summarizeQuery(Cluster c, String query, Distribution phic, double lambda, int npeak, NearDuplicates dedup, int[] budgets, boolean bytes)
+	{
+		ArrayList<Sentence> sents = getSents(c);
+		if(dedup != null)
+			sents = dedup.prune(sents);
+		ClusterIndex index = new ClusterIndex(sents);
+		
+		// the query distribution, over the words of the query that are in the vocabulary
+		Distribution q = new Distribution();
+		int[] qtypes = TextUtil.readKnownSent(query);
+		for(int type : qtypes)
+			q.add(type, 1.0);
+		
+		Distribution phiq = new Distribution();
+		for(int ti = 0; ti < TextUtil.getInstance().ntypes(); ti++)
+			phiq.add(ti, (1.0 - lambda) * phic.pw(ti) + lambda * q.pw(ti));
+		
+		// the candidates are the sentences the index reaches from the query words and the content peak
+		HashSet<Integer> reach = new HashSet<Integer>(index.peak(phic, npeak));
+		for(int type : qtypes)
+			reach.add(type);
+		
+		return selectSentences(index.reach(reach), phiq, budgets, bytes);
+	}
+	
+	/**
+	 * Greedily select the sentences that make the summary distribution closest to the target distribution, 
+	 * until the largest budget is reached.
+	 * 
+	 * @param sents the candidate sentences; the selected ones are removed
+	 * @param phic the target distribution
+	 * @param budgets the lengths of the summaries
+	 * @param bytes true if the budgets are in bytes of the original sentences, false if they are in words
+	 * @return the summary for each budget, in the same order as the budgets
+	 */
+	private static List<ArrayList<Sentence>> selectSentences(ArrayList<Sentence> sents, Distribution phic, int[] budgets, boolean bytes)
+	{
 		ArrayList<Sentence> summarySents = new ArrayList<Sentence>(); // where we will put the summary sentences
 		
+		int maxBudget = 0;
+		for(int budget : budgets)
+			maxBudget = Math.max(maxBudget, budget);
+		
+		int[] prefix = new int[budgets.length]; // how many of the summary sentences are in each summary
+		Arrays.fill(prefix, -1);
+		
 		Distribution sdist = new Distribution();
 		
 		int sumlen = 0;
-		while(sumlen < 250 && !sents.isEmpty())
+		while(sumlen < maxBudget && !sents.isEmpty())
 		{
 			// find the sentence with the min KL divergence
 			Sentence minsent = null;
@@ -249,11 +429,26 @@ public class Main
 			
 			addToDistribution(minsent, sdist); // add the minsent to the summary distribution
 			// update the summary length
-			sumlen += minsent.nwords();
+			sumlen += bytes ? minsent.nbytes() : minsent.nwords();
 			summarySents.add(minsent);
+			
+			// the summaries whose budgets were just reached end here
+			for(int bi = 0; bi < budgets.length; bi++)
+			{
+				if(prefix[bi] == -1 && sumlen >= budgets[bi])
+					prefix[bi] = summarySents.size();
+			}
+		}
+		
+		List<ArrayList<Sentence>> summaries = new ArrayList<ArrayList<Sentence>>();
+		for(int bi = 0; bi < budgets.length; bi++)
+		{
+			// if we ran out of sentences, the summary is everything we selected
+			int n = prefix[bi] == -1 ? summarySents.size() : prefix[bi];
+			summaries.add(new ArrayList<Sentence>(summarySents.subList(0, n)));
 		}
 		
-		return summarySents;
+		return summaries;
 	}
 	
 	/**
@@ -262,35 +457,46 @@ public class Main
 	 * @param summarySents
 	 * @return
 	 */
-	//TODO use a faster search here?
 	public static String basicSentOrdering(ArrayList<Sentence> summarySents)
 	{
-		String summary = "";
-		while(!summarySents.isEmpty())
+		StringBuilder summary = new StringBuilder();
+		for(Sentence topSent : orderSentences(summarySents))
 		{
-			Sentence topSent = null;
-			double minpos = 100000.0;
-			for(Sentence sent : summarySents)
-			{
-				double pos = ((double)sent.nsent()) / ((double) sent.getDoc().nsents());
-				if(pos < minpos)
-				{
-					topSent = sent;
-					minpos = pos;
-				}
-			}
-			if(topSent == null)
+			//summary.append(" \r\nDoc: " + topSent.getDoc().toString() + " Sent: " + topSent.nsent() + " ");
+			summary.append('\n').append(topSent.getOriginal());
+		}
+		summarySents.clear();
+		
+		return summary.toString();
+	}
+	
+	/**
+	 * Put the summary sentences in order by how far into their documents they are.
+	 * 
+	 * @param summarySents the summary sentences
+	 * @return the summary sentences, in order
+	 */
+	public static ArrayList<Sentence> orderSentences(List<Sentence> summarySents)
+	{
+		// the sort is stable, so sentences at the same position stay in the order they were selected
+		ArrayList<Sentence> ordered = new ArrayList<Sentence>(summarySents);
+		Collections.sort(ordered, new Comparator<Sentence>() {
+			public int compare(Sentence a, Sentence b)
 			{
-				System.out.println("Error: did not select a sentence");
-				System.exit(2);
+				return Double.compare(position(a), position(b));
 			}
-			
-			//summary = summary + " \r\nDoc: " + topSent.getDoc().toString() + " Sent: " + topSent.nsent() + " " + topSent.getOriginal();
-			summary = summary + "\n" + topSent.getOriginal();
-			summarySents.remove(topSent);
-		}
+		});
 		
-		return summary;
+		return ordered;
+	}
+	
+	/**
+	 * 
+	 * @return how far into its document the sentence is, from 0 to 1
+	 */
+	private static double position(Sentence s)
+	{
+		return ((double)s.nsent()) / ((double)s.getDoc().nsents());
 	}
 	
 	/**
@@ -0,0 +1,182 @@
+import java.util.*;
+
+/**
+ * Runs several independent Gibbs chains of the TopicSum sampler at the same time.
+ *
+ * The sampler starts from a random assignment of topics, so the quality of the model varies
+ * from seed to seed. Each chain here has its own count tables, topic assignments and random
+ * seed, and only reads the tokens of the corpus, so the chains can run on separate threads
+ * in about the time of a single chain. Afterwards either the chain with the best final
+ * log-likelihood is kept, or the counts are averaged across the chains.
+ *
+ * Only counts can be averaged, not topic assignments, so when the counts are averaged the
+ * sentences still get the assignments of the best chain, and those do not add up to the
+ * counts in the corpus topics. The summaries only use the counts. Anything that reads the
+ * topics of the tokens (Sentence.getTopic and Sentence.count) should use the best chain.
+ *
+ * @author rebecca
+ *
+ */
+public class MultiChainSampler
+{
+	private Corpus corpus;
+	private Sampler[] chains;
+	private TopicStore[] stores;
+	private boolean average; // average the counts of all the chains instead of keeping the best one
+
+
+	/**
+	 *
+	 * @param c the corpus
+	 * @param nchains the number of chains to run
+	 * @param seed the seed that the chains' seeds are drawn from
+	 * @param average true to average the counts across chains, false to keep the chain with the best log-likelihood
+	 */
+	public MultiChainSampler(Corpus c, int nchains, long seed, boolean average)
+	{
+		corpus = c;
+		this.average = average;
+
+		Random seeds = new Random(seed);
+		TopicStore shared = TopicStore.getInstance();
+
+		chains = new Sampler[nchains];
+		stores = new TopicStore[nchains];
+		for(int k = 0; k < nchains; k++)
+		{
+			// every chain gets its own assignments, laid out like the sentences' topic store
+			stores[k] = new TopicStore(shared.bits(), shared.size());
+			chains[k] = new Sampler(corpus, seeds.nextLong(), stores[k], "Chain " + k + ": ");
+		}
+	}
+
+	/**
+	 * Run all of the chains, each on its own thread.
+	 *
+	 * @param iterations the number of iterations for each chain
+	 * @param lcount how often to find the log likelihood
+	 */
+	public void estimate(final int iterations, final int lcount)
+	{
+		Thread[] threads = new Thread[chains.length];
+		for(int k = 0; k < chains.length; k++)
+		{
+			final Sampler chain = chains[k];
+			threads[k] = new Thread(new Runnable() {
+				public void run()
+				{
+					chain.estimate(iterations, lcount);
+				}
+			});
+			threads[k].start();
+		}
+
+		try
+		{
+			for(int k = 0; k < chains.length; k++)
+				threads[k].join();
+		}
+		catch(InterruptedException e)
+		{
+			System.err.println("Interrupted while waiting for the chains to finish.");
+			System.exit(1);
+		}
+
+		System.out.println("Best chain: " + best() + "\t" + chains[best()].lastLoglikelihood());
+	}
+
+	/**
+	 *
+	 * @return the index of the chain with the best final log-likelihood
+	 */
+	public int best()
+	{
+		int best = 0;
+		for(int k = 1; k < chains.length; k++)
+		{
+			if(chains[k].lastLoglikelihood() > chains[best].lastLoglikelihood())
+				best = k;
+		}
+
+		return best;
+	}
+
+	/**
+	 *
+	 * @param k the chain
+	 * @return the sampler for chain k
+	 */
+	public Sampler getChain(int k)
+	{
+		return chains[k];
+	}
+
+	/**
+	 * Copy the topic assignments of the best chain into the sentences, and the counts of the best
+	 * chain (or the counts averaged across the chains) into the topics of the corpus. When the counts
+	 * are averaged, the assignments in the sentences are still the best chain's, so they do not match
+	 * the counts.
+	 */
+	public void saveCounts()
+	{
+		int best = best();
+
+		TopicStore bestStore = stores[best];
+		for(int ci = 0; ci < corpus.nclusters(); ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			for(int di = 0; di < c.ndocs(); di++)
+			{
+				for(int si = 0; si < c.getDoc(di).nsents(); si++)
+				{
+					Sentence s = c.getDoc(di).getSent(si);
+					for(int ti = 0; ti < s.nwords(); ti++)
+						s.setTopic(ti, bestStore.get(s.getOffset() + ti));
+				}
+			}
+		}
+
+		if(!average)
+		{
+			chains[best].saveCounts();
+			return;
+		}
+
+		for(int ci = 0; ci < corpus.nclusters(); ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			for(int di = 0; di < c.ndocs(); di++)
+			{
+				Topic[] d = new Topic[chains.length];
+				for(int k = 0; k < chains.length; k++)
+					d[k] = chains[k].dtopic(ci, di);
+				setAverage(c.getDoc(di).phid(), d);
+			}
+
+			Topic[] ct = new Topic[chains.length];
+			for(int k = 0; k < chains.length; k++)
+				ct[k] = chains[k].ctopic(ci);
+			setAverage(c.phic(), ct);
+		}
+
+		Topic[] b = new Topic[chains.length];
+		for(int k = 0; k < chains.length; k++)
+			b[k] = chains[k].btopic();
+		setAverage(corpus.phib(), b);
+	}
+
+	/**
+	 * Set the counts of a topic to the average (rounded) of the counts of several topics.
+	 */
+	private void setAverage(Topic t, Topic[] from)
+	{
+		for(int type = 0; type < TextUtil.getInstance().ntypes(); type++)
+		{
+			long sum = 0;
+			for(Topic f : from)
+				sum += f.getCount(type);
+
+			t.setCount(type, (int)Math.round(((double)sum) / ((double)from.length)));
+		}
+	}
+}
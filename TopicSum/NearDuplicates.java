@@ -0,0 +1,214 @@
+import java.util.*;
+
+/**
+ * Finds near-duplicate sentences in a cluster, so only one copy of each goes into the
+ * candidates for the summary.
+ *
+ * News clusters repeat the same wire sentences across many documents, and every copy gets
+ * scored on each step of the sentence selection. Each sentence gets a MinHash signature of
+ * the bigrams of its word types, and the signatures are split into bands (LSH) so that only
+ * sentences that share a band are compared. Sentences whose signatures agree on at least the
+ * threshold fraction of hashes are near-duplicates, and only the first one is kept.
+ *
+ * @author rebecca
+ *
+ */
+public class NearDuplicates
+{
+	private int bands;
+	private int rows; // hashes per band
+	private double threshold; // the estimated Jaccard similarity at which sentences are duplicates
+	private long[] seeds;
+
+	private long candidates; // sentences looked at
+	private long removed; // sentences removed as near-duplicates
+
+
+	/**
+	 *
+	 * @param bands the number of LSH bands
+	 * @param rows the number of hashes in each band
+	 * @param threshold the estimated Jaccard similarity at which two sentences are near-duplicates
+	 */
+	public NearDuplicates(int bands, int rows, double threshold)
+	{
+		this.bands = bands;
+		this.rows = rows;
+		this.threshold = threshold;
+
+		Random r = new Random(bands * 31 + rows);
+		seeds = new long[bands * rows];
+		for(int i = 0; i < seeds.length; i++)
+			seeds[i] = r.nextLong();
+
+		candidates = 0;
+		removed = 0;
+	}
+
+	/**
+	 * A good 64 bit mix of x (the finalizer from SplitMix64).
+	 */
+	private static long mix(long x)
+	{
+		x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+		x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+		return x ^ (x >>> 31);
+	}
+
+	/**
+	 *
+	 * @param s a sentence
+	 * @return the MinHash signature of the bigrams of the sentence, or null if it has no words
+	 */
+	private long[] signature(Sentence s)
+	{
+		if(s.nwords() == 0)
+			return null;
+
+		long[] sig = new long[seeds.length];
+		Arrays.fill(sig, Long.MAX_VALUE);
+
+		// a one word sentence has a single unigram shingle
+		int nshingles = Math.max(1, s.nwords() - 1);
+		for(int wi = 0; wi < nshingles; wi++)
+		{
+			long shingle = ((long)s.getType(wi)) << 32;
+			if(wi + 1 < s.nwords())
+				shingle |= (long)s.getType(wi + 1) & 0xffffffffL;
+			else
+				shingle |= 0xffffffffL;
+
+			for(int h = 0; h < seeds.length; h++)
+			{
+				long v = mix(shingle ^ seeds[h]);
+				if(v < sig[h])
+					sig[h] = v;
+			}
+		}
+
+		return sig;
+	}
+
+	/**
+	 * Remove near-duplicates from a list of sentences.
+	 *
+	 * @param sents the sentences
+	 * @return the sentences, keeping only the first of each set of near-duplicates
+	 */
+	public ArrayList<Sentence> prune(List<Sentence> sents)
+	{
+		int n = sents.size();
+		long[][] sigs = new long[n][];
+		for(int i = 0; i < n; i++)
+			sigs[i] = signature(sents.get(i));
+
+		// union-find over the sentences, where each set's root is its first sentence
+		int[] parent = new int[n];
+		for(int i = 0; i < n; i++)
+			parent[i] = i;
+
+		for(int b = 0; b < bands; b++)
+		{
+			HashMap<Long, ArrayList<Integer>> buckets = new HashMap<Long, ArrayList<Integer>>(); // the sentences with each band value
+			for(int i = 0; i < n; i++)
+			{
+				if(sigs[i] == null)
+					continue;
+
+				long band = b;
+				for(int r = b * rows; r < (b + 1) * rows; r++)
+					band = mix(band ^ sigs[i][r]);
+
+				ArrayList<Integer> bucket = buckets.get(band);
+				if(bucket == null)
+				{
+					bucket = new ArrayList<Integer>();
+					buckets.put(band, bucket);
+				}
+
+				// compare with every earlier sentence in the bucket, since similarity isn't transitive,
+				// but skip the ones that are already in the same set
+				for(int j : bucket)
+				{
+					if(find(parent, j) != find(parent, i) && similarity(sigs[j], sigs[i]) >= threshold)
+						union(parent, j, i);
+				}
+				bucket.add(i);
+			}
+		}
+
+		ArrayList<Sentence> kept = new ArrayList<Sentence>();
+		for(int i = 0; i < n; i++)
+		{
+			if(find(parent, i) == i)
+				kept.add(sents.get(i));
+		}
+
+		synchronized(this)
+		{
+			candidates += n;
+			removed += n - kept.size();
+		}
+
+		return kept;
+	}
+
+	/**
+	 *
+	 * @return the fraction of hashes that two signatures agree on, which estimates the Jaccard similarity
+	 */
+	private static double similarity(long[] a, long[] b)
+	{
+		int same = 0;
+		for(int h = 0; h < a.length; h++)
+		{
+			if(a[h] == b[h])
+				same++;
+		}
+
+		return ((double)same) / ((double)a.length);
+	}
+
+	private static int find(int[] parent, int i)
+	{
+		while(parent[i] != i)
+		{
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j)
+	{
+		int ri = find(parent, i);
+		int rj = find(parent, j);
+
+		// keep the earlier sentence as the root
+		if(ri < rj)
+			parent[rj] = ri;
+		else if(rj < ri)
+			parent[ri] = rj;
+	}
+
+	/**
+	 *
+	 * @return the settings, which change which sentences are removed
+	 */
+	public String toString()
+	{
+		// "all" marks that each sentence is compared with every sentence in its buckets, so summaries
+		// cached when only the first sentence of a bucket was compared are not reused
+		return "minhash all " + bands + "x" + rows + " " + threshold;
+	}
+
+	/**
+	 *
+	 * @return how many candidate sentences were looked at and how many were removed
+	 */
+	public synchronized String stats()
+	{
+		return "Near-duplicates: removed " + removed + " of " + candidates + " candidate sentences";
+	}
+}
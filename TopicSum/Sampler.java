@@ -29,15 +29,50 @@ public class Sampler
 	private int nclusters; 	// the number of clusters
 	private int docsperc; // the most docs that are in any cluster
 	private int ntypes;
+	
+	private TopicStore store; // this sampler's own topic assignments, or null to use the sentences' topics
+	private String name; // printed before the log-likelihoods, to tell chains apart
+	private double lastLoglikelihood;
 
 	
 	public Sampler(Corpus c)
+	{
+		this(c, new Random(), null, "");
+	}
+	
+	/**
+	 * 
+	 * @param c the corpus
+	 * @param seed the seed for the random number generator
+	 */
+	public Sampler(Corpus c, long seed)
+	{
+		this(c, new Random(seed), null, "");
+	}
+	
+	/**
+	 * A sampler that keeps its own topic assignments instead of using the sentences' topics, 
+	 * so that several samplers can run over the same corpus at the same time.
+	 * 
+	 * @param c the corpus
+	 * @param seed the seed for the random number generator
+	 * @param store the topic assignments, laid out the same way as the sentences' topic store
+	 * @param name printed before the log-likelihoods
+	 */
+	public Sampler(Corpus c, long seed, TopicStore store, String name)
+	{
+		this(c, new Random(seed), store, name);
+	}
+	
+	private Sampler(Corpus c, Random r, TopicStore store, String name)
 	{
 		corpus = c;
 		nclusters = corpus.nclusters();
 		ntypes = TextUtil.getInstance().ntypes();
 		
-		r = new Random();
+		this.r = r;
+		this.store = store;
+		this.name = name;
 		
 		// set values of hyperparameters
 		alphab = 10.0;
@@ -106,17 +141,17 @@ public class Sampler
 							// randomly assign a topic to the token
 							if(rand > 0.666666)
 							{
-								s.setTopic(wi, Topic.BACKGROUND);
+								setTopic(s, wi, Topic.BACKGROUND);
 								b.incrementTypeCount(s.getType(wi));
 							}
 							else if(rand > 0.333333)
 							{
-								s.setTopic(wi, Topic.CONTENT);
+								setTopic(s, wi, Topic.CONTENT);
 								c.incrementTypeCount(s.getType(wi));
 							}
 							else
 							{
-								s.setTopic(wi, Topic.DOCUMENT);
+								setTopic(s, wi, Topic.DOCUMENT);
 								d.incrementTypeCount(s.getType(wi));
 							}
 						}
@@ -126,6 +161,50 @@ public class Sampler
 		}
 	}
 	
+	/**
+	 * 
+	 * @param s the sentence
+	 * @param ti index of the token
+	 * @return the topic this sampler has assigned to the token
+	 */
+	private int getTopic(Sentence s, int ti)
+	{
+		if(store == null)
+			return s.getTopic(ti);
+		else
+			return store.get(s.getOffset() + ti);
+	}
+	
+	/**
+	 * 
+	 * @param s the sentence
+	 * @param ti index of the token
+	 * @param topic the new topic for the token
+	 */
+	private void setTopic(Sentence s, int ti, int topic)
+	{
+		if(store == null)
+			s.setTopic(ti, topic);
+		else
+			store.set(s.getOffset() + ti, topic);
+	}
+	
+	/**
+	 * Count how many tokens of the sentence this sampler has assigned to each topic.
+	 * 
+	 * @param s the sentence
+	 * @param scount where to put the counts, indexed by topic
+	 */
+	private void countTopics(Sentence s, int[] scount)
+	{
+		scount[Topic.BACKGROUND] = 0;
+		scount[Topic.CONTENT] = 0;
+		scount[Topic.DOCUMENT] = 0;
+		
+		for(int ti = 0; ti < s.nwords(); ti++)
+			scount[getTopic(s, ti)]++;
+	}
+	
 	/**
 	 * estimate the topics, do not print the log likelihoods
 	 * 
@@ -143,16 +222,26 @@ public class Sampler
 	 */
 	public void estimate(int iterations, int lcount)
 	{
-		System.out.println("Iteration \t Log-likelihoood");
+		System.out.println(name + "Iteration \t Log-likelihoood");
 		for(int i = 0; i < iterations; i++)
 		{
 			iteration(false); // one iteration of gibbs sampler
 			if(lcount != -1 && i%lcount == 0)
-				System.out.println(i + "\t" + loglikelihood());
+				System.out.println(name + i + "\t" + loglikelihood());
 		}
 		
 		iteration(true); // not a real iteration, but on the last 
-		System.out.println("Final Iteration:" + "\t" + loglikelihood());
+		lastLoglikelihood = loglikelihood();
+		System.out.println(name + "Final Iteration:" + "\t" + lastLoglikelihood);
+	}
+	
+	/**
+	 * 
+	 * @return the log likelihood after the last call to estimate
+	 */
+	public double lastLoglikelihood()
+	{
+		return lastLoglikelihood;
 	}
 	
 	
@@ -187,69 +276,39 @@ public class Sampler
 		
 		Sentence s = corpus.getCluster(ci).getDoc(di).getSent(si);
 		
+		int[] scount = new int[3];
+		countTopics(s, scount);
+		
 		for(int ti = 0; ti < s.nwords(); ti++)
 		{
-			double bands = (double)s.count(Topic.BACKGROUND) + alphab;
-			double cands = (double)s.count(Topic.CONTENT) + alphac;
-			double dands = (double)s.count(Topic.DOCUMENT) + alphad;
+			double bands = (double)scount[Topic.BACKGROUND] + alphab;
+			double cands = (double)scount[Topic.CONTENT] + alphac;
+			double dands = (double)scount[Topic.DOCUMENT] + alphad;
 			
 			// remove this token from the topic counts
-			if(s.getTopic(ti) == Topic.BACKGROUND)
+			int old = getTopic(s, ti);
+			if(old == Topic.BACKGROUND)
 			{
 				b.decrementTypeCount(s.getType(ti));
 				bands = bands - 1.0;
 			}
-			else if(s.getTopic(ti)== Topic.CONTENT)
+			else if(old == Topic.CONTENT)
 			{
 				c.decrementTypeCount(s.getType(ti));
 				cands = cands - 1.0;
 			}
-			else if(s.getTopic(ti) == Topic.DOCUMENT)
+			else if(old == Topic.DOCUMENT)
 			{
 				d.decrementTypeCount(s.getType(ti));
 				dands = dands - 1.0;
 			}
 			
-			// build a distribution over topics for this token
-			double wandb = (double)b.getCount(s.getType(ti)) + betab;
-			double wandc = (double)c.getCount(s.getType(ti)) + betac;
-			double wandd = (double)d.getCount(s.getType(ti)) + betad;
+			int sample = sampleTopic(s.getType(ti), b, c, d, bands, cands, dands, betab, betac, betad, ntypes, r, lastIteration);
 			
-			double allands = bands + cands + dands;
 			
-			double bw, cw, dw;
-			bw = ( wandb / ( (double)b.getTotal() + (double)ntypes*betab) )  * 
-				( bands / allands );
-			cw = ( wandc / ( (double)c.getTotal() + (double)ntypes*betac) ) * 
-				( cands / allands );
-			dw = ( wandd / ( (double)d.getTotal() + (double)ntypes*betad) ) * 
-				( dands / allands);
-			
-			double topicWeightSum = bw + cw + dw;
-			
-			int sample;
-			if(!lastIteration) // select the topic for this token using weighted random sample
-			{
-				double rand = r.nextDouble();
-				if(rand > (cw + dw)/topicWeightSum)
-					sample = Topic.BACKGROUND;
-				else if(rand > dw/topicWeightSum)
-					sample = Topic.CONTENT;
-				else
-					sample = Topic.DOCUMENT;
-			} 
-			else // simply use the most likely topic
-			{
-				if(cw > dw && cw > bw)
-					sample = Topic.CONTENT;
-				else if(dw > bw)
-					sample = Topic.DOCUMENT;
-				else
-					sample = Topic.BACKGROUND;
-			}
-			
-			
-			s.setTopic(ti, sample);
+			setTopic(s, ti, sample);
+			scount[old]--;
+			scount[sample]++;
 			
 			// put the new topic into the counts
 			if(sample == Topic.BACKGROUND)
@@ -265,6 +324,103 @@ public class Sampler
 	
 
 	
+	/**
+	 * Pick the topic of a token from its weights under the background, content and document 
+	 * topics. The token should already be taken out of the counts. FoldInSampler draws its 
+	 * tokens the same way.
+	 * 
+	 * @param type the word type of the token
+	 * @param b the background topic
+	 * @param c the content topic of the token's cluster
+	 * @param d the topic of the token's document
+	 * @param bands the number of the other tokens of the sentence in the background topic, plus alphab
+	 * @param cands the same for the content topic, plus alphac
+	 * @param dands the same for the document topic, plus alphad
+	 * @param r the random number generator
+	 * @param lastIteration false if sample the topic randomly, true if we just pick the most likely topic
+	 * @return the topic
+	 */
+	static int sampleTopic(int type, Topic b, Topic c, Topic d, double bands, double cands, double dands, 
+			double betab, double betac, double betad, int ntypes, Random r, boolean lastIteration)
+	{
+		// build a distribution over topics for this token
+		double wandb = (double)b.getCount(type) + betab;
+		double wandc = (double)c.getCount(type) + betac;
+		double wandd = (double)d.getCount(type) + betad;
+		
+		double allands = bands + cands + dands;
+		
+		double bw, cw, dw;
+		bw = ( wandb / ( (double)b.getTotal() + (double)ntypes*betab) )  * 
+			( bands / allands );
+		cw = ( wandc / ( (double)c.getTotal() + (double)ntypes*betac) ) * 
+			( cands / allands );
+		dw = ( wandd / ( (double)d.getTotal() + (double)ntypes*betad) ) * 
+			( dands / allands);
+		
+		double topicWeightSum = bw + cw + dw;
+		
+		if(!lastIteration) // select the topic for this token using weighted random sample
+		{
+			double rand = r.nextDouble();
+			if(rand > (cw + dw)/topicWeightSum)
+				return Topic.BACKGROUND;
+			else if(rand > dw/topicWeightSum)
+				return Topic.CONTENT;
+			else
+				return Topic.DOCUMENT;
+		} 
+		else // simply use the most likely topic
+		{
+			if(cw > dw && cw > bw)
+				return Topic.CONTENT;
+			else if(dw > bw)
+				return Topic.DOCUMENT;
+			else
+				return Topic.BACKGROUND;
+		}
+	}
+	
+	/**
+	 * Copy the counts of this sampler's topics into the topics of the corpus, which are 
+	 * what the summaries are built from.
+	 */
+	public void saveCounts()
+	{
+		for(int ci = 0; ci < nclusters; ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			for(int di = 0; di < c.ndocs(); di++)
+				c.getDoc(di).phid().setCounts(dtopic[ci][di]);
+			c.phic().setCounts(ctopic[ci]);
+		}
+		corpus.phib().setCounts(btopic);
+	}
+	
+	/**
+	 * 
+	 * @return the hyperparameters of the model: alphab, alphac, alphad, betab, betac, betad
+	 */
+	public double[] hyperparameters()
+	{
+		return new double[] {alphab, alphac, alphad, betab, betac, betad};
+	}
+	
+	public Topic btopic()
+	{
+		return btopic;
+	}
+	
+	public Topic ctopic(int c)
+	{
+		return ctopic[c];
+	}
+	
+	public Topic dtopic(int c, int d)
+	{
+		return dtopic[c][d];
+	}
+	
 	public Distribution phic(int c)
 	{
 		return getDist(ctopic[c], betac);
@@ -308,6 +464,8 @@ public class Sampler
 		topicLogGamma[Topic.DOCUMENT] = Gamma.logGamma(alphad);
 		
 		
+		int[] scount = new int[3];
+		
 		// P(z)
 		for(int ci = 0; ci < nclusters; ci++)
 		{
@@ -317,10 +475,11 @@ public class Sampler
 				for(int si = 0; si < corpus.getCluster(ci).getDoc(di).nsents(); si++)
 				{
 					Sentence s = corpus.getCluster(ci).getDoc(di).getSent(si);
+					countTopics(s, scount);
 					
-					loglikelihood += Gamma.logGamma(alphab + s.count(Topic.BACKGROUND));
-					loglikelihood += Gamma.logGamma(alphac + s.count(Topic.CONTENT));
-					loglikelihood += Gamma.logGamma(alphad + s.count(Topic.DOCUMENT));
+					loglikelihood += Gamma.logGamma(alphab + scount[Topic.BACKGROUND]);
+					loglikelihood += Gamma.logGamma(alphac + scount[Topic.CONTENT]);
+					loglikelihood += Gamma.logGamma(alphad + scount[Topic.DOCUMENT]);
 					
 					// subtract the (sum + parameter) term
 					loglikelihood -= Gamma.logGamma(alphab + alphac + alphad + (double)s.nwords());
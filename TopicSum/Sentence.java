@@ -1,6 +1,8 @@
 public class Sentence 
 {	
-	private String sent; // the original sentence
+	private String sent; // the original sentence, or null if it is read from the document file when needed
+	private long start; // the byte offset of the original sentence in the document file
+	private int length; // the length in bytes of the original sentence in the document file
 	private int nwords; // the number of words in the sentence
 	
 	private Document doc; // the document that this sentence is from
@@ -8,26 +10,73 @@ public class Sentence
 	
 	
 	private int[] tokens; // the tokens in this sentence
-	private int[] topics; // the topics that generated these tokens
+	private TopicStore topics; // the topics that generated these tokens, packed
+	private int offset; // where this sentence's tokens start in the topic store
 	
 	private int[] tcount; // the count of each type of topic in this sentence
 	
 	
 	/**
-	 * @param s The original text of the sentence
+	 * A sentence that keeps its original text in memory.
+	 * 
+	 * @param sent The original text of the sentence
+	 * @param nsent the number sentence this is in the document
+	 * @param doc the document this sentence is from
 	 */
 	public Sentence(String sent, int nsent, Document doc)
+	{
+		this(sent, -1, 0, nsent, doc);
+		this.sent = sent;
+	}
+	
+	/**
+	 * A sentence that reads its original text back from the document file when it is needed.
+	 * 
+	 * @param sent The original text of the sentence, which is only used for reading the tokens
+	 * @param start the byte offset of the sentence in the document file
+	 * @param length the length in bytes of the sentence in the document file
+	 * @param nsent the number sentence this is in the document
+	 * @param doc the document this sentence is from
+	 */
+	public Sentence(String sent, long start, int length, int nsent, Document doc)
+	{
+		this.nsent = nsent;
+		this.doc = doc;
+		this.start = start;
+		this.length = length;
+		
+		tokens = TextUtil.readSent(sent);
+		nwords = tokens.length;
+		topics = TopicStore.getInstance();
+		offset = topics.allocate(tokens.length);
+		
+		tcount = new int[4];
+		tcount[Topic.BACKGROUND] = tokens.length; // add the count of all the topics
+	}
+	
+	/**
+	 * A sentence that has already been read into tokens, and keeps its original text in memory.
+	 * 
+	 * @param sent The original text of the sentence
+	 * @param tokens the word types of the sentence
+	 * @param nsent the number sentence this is in the document
+	 * @param doc the document this sentence is from
+	 * @param topics the store to keep the topics of the tokens in
+	 */
+	public Sentence(String sent, int[] tokens, int nsent, Document doc, TopicStore topics)
 	{
 		this.sent = sent;
+		this.start = -1;
 		this.nsent = nsent;
 		this.doc = doc;
 		
-		tokens = TextUtil.readSent(this.sent);
+		this.tokens = tokens;
 		nwords = tokens.length;
-		topics = new int[tokens.length];
+		this.topics = topics;
+		offset = topics.allocate(tokens.length);
 		
 		tcount = new int[4];
-		tcount[Topic.BACKGROUND] = topics.length; // add the count of all the topics
+		tcount[Topic.BACKGROUND] = tokens.length;
 	}
 	
 	/**
@@ -37,9 +86,10 @@ public class Sentence
 	 */
 	public void setTopic(int ti, int topic)
 	{
-		tcount[topics[ti]] --; // subtract one from count of previous topic
-		topics[ti] = topic; // update the assigned topic for this token
-		tcount[topic] ++; // add one to count of the new topic
+		// HierSum subtopics are all counted as CONTENTSPECIFIC
+		tcount[Math.min(topics.get(offset + ti), Topic.CONTENTSPECIFIC)] --; // subtract one from count of previous topic
+		topics.set(offset + ti, topic); // update the assigned topic for this token
+		tcount[Math.min(topic, Topic.CONTENTSPECIFIC)] ++; // add one to count of the new topic
 	}
 	
 	/**
@@ -80,9 +130,18 @@ public class Sentence
 		return tokens[ti];
 	}
 	
+	/**
+	 * 
+	 * @return where this sentence's tokens start in the topic store
+	 */
+	public int getOffset()
+	{
+		return offset;
+	}
+	
 	public int getTopic(int ti)
 	{
-		return topics[ti];
+		return topics.get(offset + ti);
 	}
 	
 	public int nwords()
@@ -90,9 +149,78 @@ public class Sentence
 		return nwords;
 	}
 	
+	/**
+	 * 
+	 * @return the length of the original sentence in bytes
+	 */
+	public int nbytes()
+	{
+		if(sent != null)
+			return sent.getBytes().length;
+		else
+			return length;
+	}
+	
 	public String getOriginal()
 	{
-		return sent;
+		if(sent != null)
+			return sent;
+		else
+			return TextCache.getInstance().get(this);
+	}
+	
+	/**
+	 * 
+	 * @return the byte offset of the original sentence in the document file, or -1 if the text is kept in memory
+	 */
+	public long getStart()
+	{
+		return start;
+	}
+	
+	/**
+	 * 
+	 * @return the length in bytes of the original sentence in the document file
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * Renumber the word types of this sentence after the vocabulary has been pruned. 
+	 * Tokens whose type was pruned are dropped, and all the topics are reset.
+	 * The topics get a new slice of the topic store, so clear the store first if 
+	 * every sentence is being remapped.
+	 * 
+	 * @param map the new id of each old word type, or -1 if the type was pruned
+	 */
+	public void remapTypes(int[] map)
+	{
+		int kept = 0;
+		for(int ti = 0; ti < tokens.length; ti++)
+		{
+			if(map[tokens[ti]] != -1)
+				kept++;
+		}
+		
+		int[] newTokens = new int[kept];
+		kept = 0;
+		for(int ti = 0; ti < tokens.length; ti++)
+		{
+			if(map[tokens[ti]] != -1)
+			{
+				newTokens[kept] = map[tokens[ti]];
+				kept++;
+			}
+		}
+		
+		tokens = newTokens;
+		nwords = tokens.length;
+		offset = topics.allocate(tokens.length);
+		
+		tcount = new int[4];
+		tcount[Topic.BACKGROUND] = tokens.length;
 	}
 	
 }
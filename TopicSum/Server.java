@@ -0,0 +1,237 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A long-running summarization server that keeps the model in memory.
+ *
+ * The corpus is read and the sampler is run once when the server starts. After that, each
+ * request is a new cluster of documents that is folded in against the background topic of
+ * the model (see FoldInSampler) and summarized the same way Main does it, without reading
+ * the corpus or estimating the model again.
+ *
+ * example arguments: /home/rebecca/summarization/duc/duc2006/ 50 8080
+ *
+ * First two arguments: the same as for Main
+ * Third argument: the port to listen on (default 8080)
+ *
+ * POST /summarize with the documents of the cluster in the body: one sentence per line, and
+ * a blank line between documents. The response is the ordered summary.
+ *
+ * GET /stats returns the number of requests, the p50/p99 latency and the cache hits and misses.
+ *
+ * Optional settings (java -Dname=value Server ...):
+ *
+ * topicsum.threads     number of requests to handle at the same time (default: number of cores)
+ * topicsum.foldIn      number of sampling iterations for each new cluster (default 20)
+ * topicsum.seed        seed for the samplers' random number generators
+ * topicsum.cache       number of summaries to keep in memory, so repeated clusters are not sampled again (default 0, no cache)
+ * topicsum.cacheDir    folder to also keep the cached summaries in
+ * topicsum.cacheDiskMB the most megabytes of summaries to keep in the folder (default 100)
+ *
+ * Words that are not in the vocabulary of the corpus are left out of the new clusters.
+ *
+ * @author rebecca
+ *
+ */
+public class Server
+{
+	private static final int NLATENCIES = 10000; // how many of the most recent latencies to keep
+
+	private Summarizer summarizer;
+
+	private long[] latencies; // the most recent request latencies, in nanoseconds
+	private long nrequests;
+
+
+	public static void main(String[] args)
+	{
+		File corpusLoc = new File(args[0]);
+		int iterations = Integer.parseInt(args[1]);
+		int port = 8080;
+		if(args.length == 3)
+			port = Integer.parseInt(args[2]);
+
+		Corpus corpus = new Corpus(corpusLoc);
+
+		System.out.println("Building the model...");
+		Summarizer summarizer = new Summarizer(corpus, Long.getLong("topicsum.seed", new Random().nextLong()));
+		summarizer.setFoldInIterations(Integer.getInteger("topicsum.foldIn", 20));
+		summarizer.train(iterations);
+
+		int cacheSize = Integer.getInteger("topicsum.cache", 0);
+		if(cacheSize > 0)
+		{
+			String cacheDir = System.getProperty("topicsum.cacheDir");
+			long cacheDiskBytes = Long.getLong("topicsum.cacheDiskMB", 100) * 1024 * 1024;
+			summarizer.setCache(new SummaryCache(cacheSize, cacheDir == null ? null : new File(cacheDir), cacheDiskBytes));
+		}
+
+		Server server = new Server(summarizer);
+		server.start(port, Integer.getInteger("topicsum.threads", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 *
+	 * @param summarizer a summarizer whose model has been trained
+	 */
+	public Server(Summarizer summarizer)
+	{
+		this.summarizer = summarizer;
+
+		latencies = new long[NLATENCIES];
+		nrequests = 0;
+	}
+
+	/**
+	 * Start listening for requests.
+	 *
+	 * @param port the port to listen on
+	 * @param threads the number of requests to handle at the same time
+	 */
+	public void start(int port, int threads)
+	{
+		HttpServer http = null;
+		try
+		{
+			http = HttpServer.create(new InetSocketAddress(port), 0);
+		}
+		catch(IOException e)
+		{
+			System.err.println("Error starting the server on port " + port + ":");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+
+		http.createContext("/summarize", new HttpHandler() {
+			public void handle(HttpExchange ex) throws IOException
+			{
+				if(!ex.getRequestMethod().equals("POST"))
+				{
+					respond(ex, 405, "Use POST\n");
+					return;
+				}
+
+				long start = System.nanoTime();
+				String summary;
+				try
+				{
+					summary = summarize(readBody(ex.getRequestBody()));
+				}
+				catch(Exception e)
+				{
+					respond(ex, 500, e.toString() + "\n");
+					return;
+				}
+				record(System.nanoTime() - start);
+
+				respond(ex, 200, summary + "\n");
+			}
+		});
+
+		http.createContext("/stats", new HttpHandler() {
+			public void handle(HttpExchange ex) throws IOException
+			{
+				respond(ex, 200, stats());
+			}
+		});
+
+		http.setExecutor(Executors.newFixedThreadPool(threads));
+		http.start();
+
+		System.out.println("Listening on port " + port + " with " + threads + " threads");
+	}
+
+	/**
+	 * Fold in and summarize a new cluster.
+	 *
+	 * @param text the documents of the cluster: one sentence per line, and a blank line between documents
+	 * @return the summary
+	 */
+	public String summarize(String text)
+	{
+		CorpusBuilder builder = Summarizer.newCluster();
+
+		// split the text into documents at the blank lines
+		int ndocs = 0;
+		ArrayList<String> lines = new ArrayList<String>();
+		for(String line : text.split("\n"))
+		{
+			if(line.trim().equals(""))
+			{
+				if(!lines.isEmpty())
+				{
+					builder.addDocument("request", "doc" + ndocs, lines);
+					ndocs++;
+				}
+				lines = new ArrayList<String>();
+			}
+			else
+				lines.add(line);
+		}
+		if(!lines.isEmpty())
+			builder.addDocument("request", "doc" + ndocs, lines);
+
+		Cluster c = builder.buildCluster("request");
+		if(c == null)
+			return "";
+
+		String summary = "";
+		for(Sentence sent : summarizer.summarize(c))
+			summary = summary + "\n" + sent.getOriginal();
+
+		return summary;
+	}
+
+	private synchronized void record(long latency)
+	{
+		latencies[(int)(nrequests % NLATENCIES)] = latency;
+		nrequests++;
+	}
+
+	/**
+	 *
+	 * @return the number of requests and the p50/p99 latency of the most recent ones
+	 */
+	public synchronized String stats()
+	{
+		int n = (int)Math.min(nrequests, NLATENCIES);
+		long[] sorted = Arrays.copyOf(latencies, n);
+		Arrays.sort(sorted);
+
+		String stats = "requests\t" + nrequests + "\n";
+		if(n > 0)
+		{
+			stats += String.format("p50\t%.1f ms\n", ((double)sorted[(n - 1) / 2]) / 1e6);
+			stats += String.format("p99\t%.1f ms\n", ((double)sorted[(int)Math.ceil(0.99 * n) - 1]) / 1e6);
+		}
+		if(summarizer.getCache() != null)
+			stats += summarizer.getCache().stats();
+
+		return stats;
+	}
+
+	private static String readBody(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[65536];
+		int l;
+		while((l = in.read(buffer)) != -1)
+			body.write(buffer, 0, l);
+		in.close();
+
+		return body.toString("UTF-8");
+	}
+
+	private static void respond(HttpExchange ex, int code, String text) throws IOException
+	{
+		byte[] b = text.getBytes("UTF-8");
+		ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		ex.sendResponseHeaders(code, b.length);
+		OutputStream out = ex.getResponseBody();
+		out.write(b);
+		out.close();
+	}
+}
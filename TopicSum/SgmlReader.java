@@ -0,0 +1,459 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Reads raw DUC/TREC SGML files straight into a corpus, without cleaning them into one
+ * sentence per line first.
+ *
+ * The corpus folder has one folder per cluster, the same as for Main, but each file can hold
+ * any number of documents marked up as <DOC> ... </DOC>. The markup is stripped in one pass
+ * over the characters of the file: the <DOCNO> names the document, only the text inside
+ * <TEXT> is kept (or all of the text, if the document has no <TEXT>), and entities like
+ * &amp; are decoded. The text of each document is then split into sentences with a few
+ * rules (see split) and given to a CorpusBuilder.
+ *
+ * @author rebecca
+ *
+ */
+public class SgmlReader
+{
+	// words that end with a period but do not usually end a sentence
+	private static final HashSet<String> ABBREVIATIONS = new HashSet<String>(Arrays.asList(
+			"mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "gen", "gov", "sen", "rep", "rev", "col",
+			"lt", "sgt", "capt", "cmdr", "adm", "maj", "pres", "sec", "supt", "no", "vs", "etc", "inc",
+			"corp", "co", "ltd", "bros", "dept", "univ", "assn", "ave", "blvd", "mt", "ft", "jan", "feb",
+			"mar", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec", "a.m", "p.m"));
+
+	private CorpusBuilder builder;
+
+	private long bytes; // bytes read so far
+	private long ndocs; // documents read so far
+	private long nsents; // sentences read so far
+
+	// the state of the markup parser
+	private StringBuilder body; // the text of the current document
+	private StringBuilder docno;
+	private StringBuilder tag;
+	private StringBuilder entity;
+	private boolean inTag;
+	private boolean inEntity;
+	private boolean inDocno;
+	private boolean inText;
+	private boolean sawText; // the current document has a <TEXT> element
+	private int newlines; // newlines since the last character that is not whitespace
+
+
+	/**
+	 *
+	 * @param builder where the documents go
+	 */
+	public SgmlReader(CorpusBuilder builder)
+	{
+		this.builder = builder;
+
+		body = new StringBuilder();
+		docno = new StringBuilder();
+		tag = new StringBuilder();
+		entity = new StringBuilder();
+
+		bytes = 0;
+		ndocs = 0;
+		nsents = 0;
+	}
+
+	/**
+	 * Read a corpus of SGML files, and print how fast it was read.
+	 *
+	 * @param f the corpus folder, with one folder of files for each cluster
+	 * @return the corpus
+	 */
+	public static Corpus readCorpus(File f)
+	{
+		CorpusBuilder builder = new CorpusBuilder();
+		SgmlReader reader = new SgmlReader(builder);
+
+		if(!f.isDirectory())
+		{
+			System.err.println("Error: " + f.toString() + " is not a folder.");
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		File[] clusters = f.listFiles();
+		Arrays.sort(clusters);
+		for(File cluster : clusters)
+		{
+			// only folders are clusters
+			if(skip(cluster) || !cluster.isDirectory())
+				continue;
+
+			File[] files = cluster.listFiles();
+			Arrays.sort(files);
+			for(File file : files)
+			{
+				if(!skip(file) && file.isFile())
+					reader.read(cluster.getName(), file);
+			}
+		}
+		double seconds = ((double)(System.nanoTime() - start)) / 1e9;
+
+		System.out.println(String.format("Read %d documents, %d sentences, %.1f MB of SGML in %.2f s (%.1f MB/s)",
+				reader.ndocs, reader.nsents, ((double)reader.bytes) / (1024.0 * 1024.0), seconds,
+				((double)reader.bytes) / (1024.0 * 1024.0) / seconds));
+
+		return builder.build();
+	}
+
+	/**
+	 *
+	 * @param f a file or folder
+	 * @return true if it is a hidden file or an editor backup, which Cluster skips too
+	 */
+	private static boolean skip(File f)
+	{
+		String name = f.getName();
+		return name.length() == 0 || name.charAt(0) == '.' || name.charAt(name.length() - 1) == '~';
+	}
+
+	/**
+	 * Read the documents in a file.
+	 *
+	 * @param cluster the name of the cluster the documents are in
+	 * @param f the file
+	 */
+	public void read(String cluster, File f)
+	{
+		try
+		{
+			Reader in = new InputStreamReader(new FileInputStream(f), "ISO-8859-1");
+			read(cluster, f.getName(), in);
+			in.close();
+		}
+		catch(IOException e)
+		{
+			System.err.println("Error reading " + f.getPath() + ":");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Read the documents in SGML text.
+	 *
+	 * @param cluster the name of the cluster the documents are in
+	 * @param name the name for a document that has no <DOCNO>
+	 * @param in the SGML
+	 */
+	public void read(String cluster, String name, Reader in) throws IOException
+	{
+		startDoc();
+
+		char[] buffer = new char[65536];
+		int l;
+		while((l = in.read(buffer)) != -1)
+		{
+			bytes += l;
+			for(int i = 0; i < l; i++)
+				parse(cluster, name, buffer[i]);
+		}
+
+		// a file with no <DOC> is one document
+		endDoc(cluster, name);
+	}
+
+	private void startDoc()
+	{
+		body.setLength(0);
+		docno.setLength(0);
+		inTag = false;
+		inEntity = false;
+		inDocno = false;
+		inText = false;
+		sawText = false;
+		newlines = 0;
+	}
+
+	private void endDoc(String cluster, String name)
+	{
+		String id = docno.toString().trim();
+		List<String> sents = split(body);
+		if(!sents.isEmpty())
+		{
+			builder.addDocument(cluster, id.equals("") ? name + "." + ndocs : id, sents);
+			ndocs++;
+			nsents += sents.size();
+		}
+
+		startDoc();
+	}
+
+	private void parse(String cluster, String name, char ch)
+	{
+		if(inTag)
+		{
+			if(ch == '>')
+			{
+				inTag = false;
+				endTag(cluster, name);
+			}
+			else
+				tag.append(ch);
+		}
+		else if(ch == '<')
+		{
+			flushEntity();
+			inTag = true;
+			tag.setLength(0);
+		}
+		else if(inEntity)
+		{
+			if(ch == ';')
+			{
+				inEntity = false;
+				text(decode(entity.toString()));
+			}
+			else if(Character.isLetterOrDigit(ch) || ch == '#')
+				entity.append(ch);
+			else
+			{
+				flushEntity();
+				parse(cluster, name, ch);
+			}
+		}
+		else if(ch == '&')
+		{
+			inEntity = true;
+			entity.setLength(0);
+		}
+		else
+			text(ch);
+	}
+
+	/**
+	 * Handle a tag that was just read.
+	 */
+	private void endTag(String cluster, String name)
+	{
+		String t = tag.toString().trim();
+		boolean close = t.startsWith("/");
+		if(close)
+			t = t.substring(1);
+		int space = t.indexOf(' ');
+		if(space >= 0)
+			t = t.substring(0, space);
+		t = t.toUpperCase();
+
+		if(t.equals("DOC"))
+		{
+			if(close)
+				endDoc(cluster, name);
+			else
+				startDoc();
+		}
+		else if(t.equals("DOCNO"))
+			inDocno = !close;
+		else if(t.equals("TEXT"))
+		{
+			if(!close && !sawText)
+				body.setLength(0); // only keep what is inside <TEXT>
+			sawText = true;
+			inText = !close;
+		}
+		else if(t.equals("P") && (inText || !sawText))
+			paragraph();
+	}
+
+	private void flushEntity()
+	{
+		if(inEntity)
+		{
+			inEntity = false;
+			text('&');
+			text(entity.toString());
+		}
+	}
+
+	private void text(char ch)
+	{
+		if(inDocno)
+			docno.append(ch);
+		else if(inText || !sawText)
+		{
+			// runs of whitespace become one space, and a blank line ends the paragraph
+			if(ch == '\n')
+			{
+				newlines++;
+				if(newlines == 2)
+					paragraph();
+				else
+					space();
+			}
+			else if(Character.isWhitespace(ch))
+				space();
+			else
+			{
+				newlines = 0;
+				body.append(ch);
+			}
+		}
+	}
+
+	private void space()
+	{
+		int l = body.length();
+		if(l > 0 && body.charAt(l - 1) != ' ' && body.charAt(l - 1) != '\n')
+			body.append(' ');
+	}
+
+	/**
+	 * End the paragraph, which also ends the sentence.
+	 */
+	private void paragraph()
+	{
+		int l = body.length();
+		if(l > 0 && body.charAt(l - 1) == ' ')
+			body.setCharAt(l - 1, '\n');
+		else if(l > 0 && body.charAt(l - 1) != '\n')
+			body.append('\n');
+	}
+
+	private void text(String s)
+	{
+		for(int i = 0; i < s.length(); i++)
+			text(s.charAt(i));
+	}
+
+	/**
+	 *
+	 * @param e the name of an entity, without the & and ;
+	 * @return the text of the entity
+	 */
+	private static String decode(String e)
+	{
+		String lower = e.toLowerCase();
+		if(lower.equals("amp"))
+			return "&";
+		else if(lower.equals("lt"))
+			return "<";
+		else if(lower.equals("gt"))
+			return ">";
+		else if(lower.equals("quot"))
+			return "\"";
+		else if(lower.equals("apos"))
+			return "'";
+		else if(lower.equals("nbsp"))
+			return " ";
+		else if(lower.startsWith("#x"))
+		{
+			try
+			{
+				return String.valueOf((char)Integer.parseInt(e.substring(2), 16));
+			}
+			catch(NumberFormatException ex)
+			{
+			}
+		}
+		else if(lower.startsWith("#"))
+		{
+			try
+			{
+				return String.valueOf((char)Integer.parseInt(e.substring(1)));
+			}
+			catch(NumberFormatException ex)
+			{
+			}
+		}
+
+		// leave entities we do not know alone
+		return "&" + e + ";";
+	}
+
+	/**
+	 * Split text into sentences. A sentence ends at a newline, or at a '.', '!' or '?' (and
+	 * any closing quotes or brackets after it) that is followed by a space and then by a capital
+	 * letter, a digit or an opening quote or bracket. A '.' does not end a sentence after a
+	 * single letter (an initial), a known abbreviation, or a word with periods in it (U.S.).
+	 *
+	 * @param text the text, with runs of whitespace as single spaces and paragraphs as newlines
+	 * @return the sentences
+	 */
+	public static List<String> split(CharSequence text)
+	{
+		ArrayList<String> sents = new ArrayList<String>();
+		int n = text.length();
+		int start = 0;
+		for(int i = 0; i < n; i++)
+		{
+			char ch = text.charAt(i);
+			if(ch == '\n')
+			{
+				addSentence(sents, text, start, i);
+				start = i + 1;
+			}
+			else if(ch == '.' || ch == '!' || ch == '?')
+			{
+				int end = i + 1;
+				while(end < n && isClosing(text.charAt(end)))
+					end++;
+
+				if(end < n && text.charAt(end) != ' ')
+					continue;
+
+				// look at what starts the next word
+				int next = end;
+				while(next < n && text.charAt(next) == ' ')
+					next++;
+				if(next < n && !isStart(text.charAt(next)))
+					continue;
+
+				if(ch == '.' && isAbbreviation(text, start, i))
+					continue;
+
+				addSentence(sents, text, start, end);
+				start = end;
+				i = end - 1;
+			}
+		}
+		addSentence(sents, text, start, n);
+
+		return sents;
+	}
+
+	private static boolean isClosing(char ch)
+	{
+		return ch == '.' || ch == '!' || ch == '?' || ch == '"' || ch == '\'' || ch == ')' || ch == ']';
+	}
+
+	private static boolean isStart(char ch)
+	{
+		return Character.isUpperCase(ch) || Character.isDigit(ch) || ch == '"' || ch == '\'' || ch == '`' || ch == '(' || ch == '[';
+	}
+
+	/**
+	 *
+	 * @return true if the word that ends at the period at index dot is an initial or an abbreviation
+	 */
+	private static boolean isAbbreviation(CharSequence text, int start, int dot)
+	{
+		int wstart = dot;
+		while(wstart > start && text.charAt(wstart - 1) != ' ')
+			wstart--;
+		while(wstart < dot && !Character.isLetterOrDigit(text.charAt(wstart)))
+			wstart++;
+
+		String word = text.subSequence(wstart, dot).toString().toLowerCase();
+		if(word.length() == 1 && Character.isLetter(word.charAt(0)))
+			return true;
+		if(word.indexOf('.') >= 0 && word.length() <= 6)
+			return true;
+
+		return ABBREVIATIONS.contains(word);
+	}
+
+	private static void addSentence(ArrayList<String> sents, CharSequence text, int start, int end)
+	{
+		String s = text.subSequence(start, end).toString().trim();
+		if(!s.equals(""))
+			sents.add(s);
+	}
+}
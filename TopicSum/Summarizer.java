@@ -0,0 +1,184 @@
+import java.util.*;
+
+/**
+ * A simple way to use TopicSum from other Java code: estimate the model for a corpus, then get 
+ * the summary sentences for any of its clusters, or for new clusters folded in to the model.
+ * 
+ * Corpus corpus = new CorpusBuilder().addDocument("cluster", "doc", text) ... .build();
+ * Summarizer summarizer = new Summarizer(corpus, seed);
+ * summarizer.train(50);
+ * List<Sentence> summary = summarizer.summarize(0);
+ * 
+ * @author rebecca
+ *
+ */
+public class Summarizer 
+{
+	private Corpus corpus;
+	private Sampler sampler;
+	private Distribution phib;
+	private long seed;
+	private int foldIn;
+	
+	private SummaryCache cache; // summaries of folded in clusters, or null
+	private NearDuplicates dedup; // removes near-duplicate candidate sentences, or null
+	private String model; // a fingerprint of the trained model, for the cache keys
+	
+	/**
+	 * 
+	 * @param corpus the corpus to build the model from
+	 * @param seed the seed for the samplers' random number generators
+	 */
+	public Summarizer(Corpus corpus, long seed)
+	{
+		this.corpus = corpus;
+		this.seed = seed;
+		foldIn = 20;
+	}
+	
+	/**
+	 * Estimate the model.
+	 * 
+	 * @param iterations the number of iterations to run the sampler
+	 */
+	public void train(int iterations)
+	{
+		sampler = new Sampler(corpus, seed);
+		sampler.estimate(iterations);
+		sampler.saveCounts();
+		
+		phib = Sampler.getDist(corpus.phib(), 1.0);
+		
+		// the folded in clusters only depend on the background topic of the model
+		StringBuilder counts = new StringBuilder();
+		for(int i = 0; i < TextUtil.getInstance().ntypes(); i++)
+			counts.append(TextUtil.getInstance().getString(i)).append(' ').append(sampler.btopic().getCount(i)).append('\n');
+		model = SummaryCache.hash(counts.toString());
+	}
+	
+	/**
+	 * Remove near-duplicate sentences from the candidates before selecting the summary sentences.
+	 * 
+	 * @param dedup finds the near-duplicates
+	 */
+	public void setNearDuplicates(NearDuplicates dedup)
+	{
+		this.dedup = dedup;
+	}
+	
+	/**
+	 * Keep the summaries of folded in clusters in a cache, so that a cluster that is summarized 
+	 * again does not have to be sampled again.
+	 * 
+	 * @param cache the cache
+	 */
+	public void setCache(SummaryCache cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * 
+	 * @param iterations the number of sampling iterations for each new cluster (default 20)
+	 */
+	public void setFoldInIterations(int iterations)
+	{
+		foldIn = iterations;
+	}
+	
+	/**
+	 * 
+	 * @param ci the cluster of the corpus to summarize
+	 * @return the summary sentences, in order
+	 */
+	public List<Sentence> summarize(int ci)
+	{
+		Cluster c = corpus.getCluster(ci);
+		return Main.orderSentences(Main.summarizeCluster(c, Sampler.getDist(c.phic(), 0.001), phib, dedup));
+	}
+	
+	/**
+	 * Summaries of several lengths for a cluster of the corpus, from a single pass of sentence selection.
+	 * 
+	 * @param ci the cluster of the corpus to summarize
+	 * @param budgets the lengths of the summaries
+	 * @param bytes true if the budgets are in bytes, false if they are in words
+	 * @return the summary sentences for each budget, in order
+	 */
+	public List<List<Sentence>> summarize(int ci, int[] budgets, boolean bytes)
+	{
+		Cluster c = corpus.getCluster(ci);
+		
+		List<List<Sentence>> summaries = new ArrayList<List<Sentence>>();
+		for(ArrayList<Sentence> summary : Main.summarizeCluster(c, Sampler.getDist(c.phic(), 0.001), phib, dedup, budgets, bytes))
+			summaries.add(Main.orderSentences(summary));
+		
+		return summaries;
+	}
+	
+	/**
+	 * Fold in a new cluster against the background topic of the model and summarize it. This does 
+	 * not change the model, so it can be called from several threads at once. The cluster should 
+	 * be built with a frozen vocabulary and its own topic store (see newCluster). If there is a 
+	 * cache, a cluster that was already summarized is not sampled again.
+	 * 
+	 * @param c the new cluster
+	 * @return the summary sentences, in order
+	 */
+	public List<Sentence> summarize(Cluster c)
+	{
+		String key = null;
+		if(cache != null)
+		{
+			key = SummaryCache.key(c, model + " " + dedup, sampler.hyperparameters(), seed, foldIn, Main.SUMMARY_WORDS);
+			List<Sentence> summary = cache.get(key, c);
+			if(summary != null)
+				return summary;
+		}
+		
+		FoldInSampler foldInSampler = new FoldInSampler(sampler, c, seed);
+		foldInSampler.estimate(foldIn);
+		
+		List<Sentence> summary = Main.orderSentences(Main.summarizeCluster(c, Sampler.getDist(foldInSampler.ctopic(), 0.001), phib, dedup));
+		if(cache != null)
+			cache.put(key, summary, c);
+		
+		return summary;
+	}
+	
+	/**
+	 * 
+	 * @return a builder for new clusters to fold in to this model
+	 */
+	public static CorpusBuilder newCluster()
+	{
+		return new CorpusBuilder().frozenVocabulary().topicStore(new TopicStore(TopicStore.bitsFor(Topic.CONTENTSPECIFIC + 1)));
+	}
+	
+	/**
+	 * 
+	 * @return the summary cache, or null if there is none
+	 */
+	public SummaryCache getCache()
+	{
+		return cache;
+	}
+	
+	/**
+	 * 
+	 * @return the corpus
+	 */
+	public Corpus getCorpus()
+	{
+		return corpus;
+	}
+	
+	/**
+	 * 
+	 * @return the sampler, or null before train is called
+	 */
+	public Sampler getSampler()
+	{
+		return sampler;
+	}
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * A cache of cluster summaries, keyed by a hash of everything that the summary depends on:
+ * the words of the cluster's sentences, the model, the hyperparameters, the seed and the
+ * summary length. A cluster that is sent again without any changes gets its summary back
+ * without being sampled again.
+ *
+ * A summary is stored as the positions (document and sentence number) of its sentences, so
+ * it can be given back as the sentences of the cluster that was just sent. The most recently
+ * used summaries are kept in memory, and optionally also in files in a folder, with the least
+ * recently used files deleted when the folder gets too big.
+ *
+ * @author rebecca
+ *
+ */
+public class SummaryCache
+{
+	private LinkedHashMap<String, int[]> memory;
+	private int maxEntries;
+
+	private File dir; // where summaries are saved, or null to only keep them in memory
+	private long maxDiskBytes;
+	private long diskBytes;
+
+	private long hits;
+	private long diskHits;
+	private long misses;
+
+
+	/**
+	 *
+	 * @param maxEntries the most summaries to keep in memory
+	 * @param dir the folder to save summaries in, or null to only keep them in memory
+	 * @param maxDiskBytes the most bytes of summaries to keep in the folder
+	 */
+	public SummaryCache(int maxEntries, File dir, long maxDiskBytes)
+	{
+		this.maxEntries = maxEntries;
+		this.dir = dir;
+		this.maxDiskBytes = maxDiskBytes;
+
+		memory = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest)
+			{
+				return size() > SummaryCache.this.maxEntries;
+			}
+		};
+
+		diskBytes = 0;
+		if(dir != null)
+		{
+			dir.mkdirs();
+			for(File f : dir.listFiles())
+				diskBytes += f.length();
+		}
+
+		hits = 0;
+		diskHits = 0;
+		misses = 0;
+	}
+
+	/**
+	 *
+	 * @param c the cluster
+	 * @param model a fingerprint of the model the cluster is summarized with
+	 * @param hyperparameters the hyperparameters of the model
+	 * @param seed the seed of the sampler
+	 * @param iterations the number of sampling iterations
+	 * @param budget the length of the summary
+	 * @return the key for the summary of the cluster
+	 */
+	public static String key(Cluster c, String model, double[] hyperparameters, long seed, int iterations, int budget)
+	{
+		TextUtil tu = TextUtil.getInstance();
+		StringBuilder content = new StringBuilder();
+
+		content.append(model).append('\n');
+		for(double h : hyperparameters)
+			content.append(h).append(' ');
+		content.append('\n').append(seed).append(' ').append(iterations).append(' ').append(budget).append('\n');
+
+		for(int di = 0; di < c.ndocs(); di++)
+		{
+			Document d = c.getDoc(di);
+			for(int si = 0; si < d.nsents(); si++)
+			{
+				Sentence s = d.getSent(si);
+				for(int wi = 0; wi < s.nwords(); wi++)
+					content.append(tu.getString(s.getType(wi))).append(' ');
+				content.append('\n');
+			}
+			content.append('\n');
+		}
+
+		return hash(content.toString());
+	}
+
+	/**
+	 *
+	 * @param s any string
+	 * @return the SHA-256 hash of the string, in hexadecimal
+	 */
+	public static String hash(String s)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes("UTF-8"));
+
+			StringBuilder hex = new StringBuilder();
+			for(byte b : digest)
+				hex.append(String.format("%02x", b));
+
+			return hex.toString();
+		}
+		catch(Exception e)
+		{
+			System.err.println("Error hashing for the summary cache:");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+
+		return null;
+	}
+
+	/**
+	 *
+	 * @param key the key of the summary
+	 * @param c the cluster that was summarized
+	 * @return the summary sentences of the cluster, or null if the summary is not in the cache
+	 */
+	public synchronized List<Sentence> get(String key, Cluster c)
+	{
+		int[] positions = memory.get(key);
+		if(positions != null)
+			hits++;
+		else if(dir != null && (positions = read(key, c)) != null)
+		{
+			diskHits++;
+			memory.put(key, positions);
+		}
+		else
+		{
+			misses++;
+			return null;
+		}
+
+		ArrayList<Sentence> summary = new ArrayList<Sentence>();
+		for(int i = 0; i < positions.length; i += 2)
+			summary.add(c.getDoc(positions[i]).getSent(positions[i + 1]));
+
+		return summary;
+	}
+
+	/**
+	 *
+	 * @param key the key of the summary
+	 * @param summary the summary sentences
+	 * @param c the cluster that was summarized
+	 */
+	public synchronized void put(String key, List<Sentence> summary, Cluster c)
+	{
+		int[] positions = new int[summary.size() * 2];
+		for(int i = 0; i < summary.size(); i++)
+		{
+			Sentence s = summary.get(i);
+			for(int di = 0; di < c.ndocs(); di++)
+			{
+				if(c.getDoc(di) == s.getDoc())
+					positions[2 * i] = di;
+			}
+			positions[2 * i + 1] = s.nsent();
+		}
+
+		memory.put(key, positions);
+		if(dir != null)
+			write(key, positions);
+	}
+
+	/**
+	 * Read a summary from its file. A file that cannot be read, or that does not hold the positions of
+	 * sentences in the cluster (say it was cut short or changed by hand), counts as a miss and is deleted.
+	 */
+	private int[] read(String key, Cluster c)
+	{
+		File f = new File(dir, key);
+		if(!f.exists())
+			return null;
+
+		String text = (f.length() == 0) ? "" : FileUtil.readTextFile(f); // readTextFile fails on an empty file
+		int[] positions = null;
+		if(text != null)
+		{
+			String trimmed = text.trim();
+			String[] words = (trimmed.length() == 0) ? new String[0] : trimmed.split("\\s+");
+			positions = new int[words.length];
+			try
+			{
+				for(int i = 0; i < words.length; i++)
+					positions[i] = Integer.parseInt(words[i]);
+			}
+			catch(NumberFormatException e)
+			{
+				positions = null;
+			}
+		}
+
+		if(positions == null || !valid(positions, c))
+		{
+			System.err.println("Deleting unreadable summary cache file " + f.toString());
+			diskBytes -= f.length();
+			f.delete();
+			return null;
+		}
+
+		f.setLastModified(System.currentTimeMillis()); // so the least recently used files are deleted first
+		return positions;
+	}
+
+	/**
+	 *
+	 * @return true if the positions are pairs of a document and a sentence number that are in the cluster
+	 */
+	private static boolean valid(int[] positions, Cluster c)
+	{
+		if(positions.length % 2 != 0)
+			return false;
+
+		for(int i = 0; i < positions.length; i += 2)
+		{
+			if(positions[i] < 0 || positions[i] >= c.ndocs())
+				return false;
+			if(positions[i + 1] < 0 || positions[i + 1] >= c.getDoc(positions[i]).nsents())
+				return false;
+		}
+
+		return true;
+	}
+
+	private void write(String key, int[] positions)
+	{
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < positions.length; i += 2)
+			s.append(positions[i]).append(' ').append(positions[i + 1]).append('\n');
+
+		File f = new File(dir, key);
+		diskBytes -= f.length();
+		FileUtil.writeTextFile(f, s.toString());
+		diskBytes += f.length();
+
+		if(diskBytes > maxDiskBytes)
+			evict();
+	}
+
+	/**
+	 * Delete the least recently used files until the folder is small enough.
+	 */
+	private void evict()
+	{
+		File[] files = dir.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b)
+			{
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+
+		for(int i = 0; i < files.length && diskBytes > maxDiskBytes; i++)
+		{
+			long length = files[i].length();
+			if(files[i].delete())
+				diskBytes -= length;
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of hits and misses
+	 */
+	public synchronized String stats()
+	{
+		return "cache hits\t" + hits + "\ncache disk hits\t" + diskHits + "\ncache misses\t" + misses + "\n";
+	}
+}
@@ -0,0 +1,287 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes summaries on a background thread, so the sentence selection does not wait on the
+ * console or the disk.
+ *
+ * Summaries are put on a bounded queue (so the selection can only get so far ahead of the
+ * writing), and the writer thread takes every summary that is waiting at once, orders and
+ * formats them, and writes them through buffered channels. A summary can go to any of:
+ * standard out (the same text Main has always printed), a file for each summary in an
+ * output folder, or one JSON line per summary in a single file.
+ *
+ * @author rebecca
+ *
+ */
+public class SummarySink
+{
+	private static final int BUFFER_BYTES = 1 << 20; // how much is formatted before it is written
+
+	private static final Charset CHARSET = Charset.defaultCharset(); // the same encoding as FileWriter
+	private static final Charset JSON_CHARSET = Charset.forName("UTF-8"); // JSON text has to be UTF-8
+
+	private boolean stdout;
+	private File dir; // the folder for the summary files, or null for no files
+	private File jsonl; // the JSON lines file, or null for none
+
+	private BlockingQueue<Entry> queue;
+	private Thread writer;
+	private ByteBuffer stdoutBuffer;
+	private ByteBuffer jsonlBuffer;
+	private WritableByteChannel stdoutChannel;
+	private FileChannel jsonlChannel;
+
+	private long nsummaries;
+
+	private static final Entry END = new Entry(null, 0, null, null); // put on the queue by close()
+
+	/**
+	 * A summary waiting to be written.
+	 */
+	private static class Entry
+	{
+		String cluster;
+		int budget;
+		String file;
+		List<Sentence> sents;
+
+		Entry(String cluster, int budget, String file, List<Sentence> sents)
+		{
+			this.cluster = cluster;
+			this.budget = budget;
+			this.file = file;
+			this.sents = sents;
+		}
+	}
+
+
+	/**
+	 *
+	 * @param stdout true to print the summaries to standard out
+	 * @param dir the folder to write a file for each summary to, or null for no files
+	 * @param jsonl the file to write a JSON line for each summary to, or null for none
+	 * @param queueSize the most summaries that can wait to be written
+	 */
+	public SummarySink(boolean stdout, File dir, File jsonl, int queueSize)
+	{
+		this.stdout = stdout;
+		this.dir = dir;
+		this.jsonl = jsonl;
+
+		queue = new ArrayBlockingQueue<Entry>(queueSize);
+		nsummaries = 0;
+
+		try
+		{
+			if(stdout)
+			{
+				stdoutChannel = Channels.newChannel(new FileOutputStream(FileDescriptor.out));
+				stdoutBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+			}
+			if(jsonl != null)
+			{
+				jsonlChannel = new FileOutputStream(jsonl).getChannel();
+				jsonlBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+			}
+		}
+		catch(IOException e)
+		{
+			System.err.println("Error opening " + jsonl + ":");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+
+		writer = new Thread(new Runnable() {
+			public void run()
+			{
+				write();
+			}
+		}, "summary writer");
+		writer.start();
+	}
+
+	/**
+	 * Queue a summary to be written. Waits if the queue is full.
+	 *
+	 * @param cluster the name of the cluster
+	 * @param budget the length the summary was made for
+	 * @param file the name of the summary's file in the output folder
+	 * @param summary the summary sentences, in any order
+	 */
+	public void put(String cluster, int budget, String file, List<Sentence> summary)
+	{
+		try
+		{
+			queue.put(new Entry(cluster, budget, file, summary));
+		}
+		catch(InterruptedException e)
+		{
+			System.err.println("Interrupted while queueing the summary of " + cluster + ".");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Write everything that is still queued and close the files.
+	 */
+	public void close()
+	{
+		try
+		{
+			queue.put(END);
+			writer.join();
+		}
+		catch(InterruptedException e)
+		{
+			System.err.println("Interrupted while waiting for the summaries to be written.");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of summaries written
+	 */
+	public long nsummaries()
+	{
+		return nsummaries;
+	}
+
+	/**
+	 * The writer thread: take every summary that is waiting, write them, and repeat until close().
+	 */
+	private void write()
+	{
+		ArrayList<Entry> batch = new ArrayList<Entry>();
+		try
+		{
+			boolean done = false;
+			while(!done)
+			{
+				batch.clear();
+				batch.add(queue.take());
+				queue.drainTo(batch);
+
+				for(Entry e : batch)
+				{
+					if(e == END)
+					{
+						done = true;
+						break;
+					}
+					write(e);
+					nsummaries++;
+				}
+
+				if(stdout)
+					flush(stdoutBuffer, stdoutChannel);
+				if(jsonl != null)
+					flush(jsonlBuffer, jsonlChannel);
+			}
+
+			if(jsonl != null)
+				jsonlChannel.close();
+		}
+		catch(Exception e)
+		{
+			System.err.println("Error writing the summaries:");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+	}
+
+	private void write(Entry e) throws IOException
+	{
+		ArrayList<Sentence> ordered = Main.orderSentences(e.sents);
+
+		StringBuilder text = new StringBuilder();
+		for(Sentence s : ordered)
+			text.append('\n').append(s.getOriginal());
+		String summary = text.toString();
+
+		if(stdout)
+			append(stdoutBuffer, stdoutChannel, CHARSET, summary + "\n");
+		if(dir != null)
+		{
+			// each summary file is small, so it is written all at once
+			FileChannel fc = new FileOutputStream(new File(dir, e.file)).getChannel();
+			ByteBuffer b = CHARSET.encode(summary);
+			while(b.hasRemaining())
+				fc.write(b);
+			fc.close();
+		}
+		if(jsonl != null)
+		{
+			StringBuilder json = new StringBuilder();
+			json.append("{\"cluster\":").append(quote(e.cluster)).append(",\"budget\":").append(e.budget).append(",\"sentences\":[");
+			for(int i = 0; i < ordered.size(); i++)
+			{
+				if(i > 0)
+					json.append(',');
+				json.append(quote(ordered.get(i).getOriginal()));
+			}
+			json.append("]}\n");
+			append(jsonlBuffer, jsonlChannel, JSON_CHARSET, json.toString());
+		}
+	}
+
+	/**
+	 * Add text to a buffer, writing the buffer out first if it is too full.
+	 */
+	private static void append(ByteBuffer buffer, WritableByteChannel channel, Charset charset, String s) throws IOException
+	{
+		ByteBuffer b = charset.encode(s);
+		if(b.remaining() > buffer.remaining())
+			flush(buffer, channel);
+
+		if(b.remaining() > buffer.remaining())
+		{
+			while(b.hasRemaining())
+				channel.write(b);
+		}
+		else
+			buffer.put(b);
+	}
+
+	private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 *
+	 * @return s as a JSON string
+	 */
+	private static String quote(String s)
+	{
+		StringBuilder q = new StringBuilder(s.length() + 2);
+		q.append('"');
+		for(int i = 0; i < s.length(); i++)
+		{
+			char ch = s.charAt(i);
+			if(ch == '"' || ch == '\\')
+				q.append('\\').append(ch);
+			else if(ch == '\n')
+				q.append("\\n");
+			else if(ch == '\r')
+				q.append("\\r");
+			else if(ch == '\t')
+				q.append("\\t");
+			else if(ch < 0x20)
+				q.append(String.format("\\u%04x", (int)ch));
+			else
+				q.append(ch);
+		}
+		q.append('"');
+
+		return q.toString();
+	}
+}
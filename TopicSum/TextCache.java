@@ -0,0 +1,64 @@
+import java.util.*;
+
+/**
+ * A small LRU cache for the original text of sentences.
+ * 
+ * Sentences that were read from a document file only keep the offset and length of their
+ * text in the file, since only the handful of sentences that make it into a summary ever
+ * need it. The text is read back from the file the first time it is asked for, and the
+ * most recently used sentences are kept here.
+ * 
+ * The size of the cache can be set with -Dtopicsum.textCache (default 1024 sentences).
+ * 
+ * @author rebecca
+ *
+ */
+public class TextCache 
+{
+	private static TextCache ref;
+	
+	private LinkedHashMap<Sentence, String> cache;
+	private int capacity;
+	
+	private TextCache(int capacity)
+	{
+		this.capacity = capacity;
+		
+		// access order, so the eldest entry is the least recently used one
+		cache = new LinkedHashMap<Sentence, String>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Sentence, String> eldest)
+			{
+				return size() > TextCache.this.capacity;
+			}
+		};
+	}
+	
+	public static synchronized TextCache getInstance()
+	{
+		if(ref == null)
+			ref = new TextCache(Integer.getInteger("topicsum.textCache", 1024));
+		
+		return ref;
+	}
+	
+	/**
+	 * 
+	 * @param s the sentence
+	 * @return the original text of the sentence, read from its document file if it is not in the cache
+	 */
+	public synchronized String get(Sentence s)
+	{
+		String text = cache.get(s);
+		if(text == null)
+		{
+			byte[] b = FileUtil.readBytes(s.getDoc().getFile(), s.getStart(), s.getLength());
+			if(b == null)
+				return null;
+			
+			text = new String(b);
+			cache.put(s, text);
+		}
+		
+		return text;
+	}
+}
@@ -105,6 +105,32 @@ public class TextUtil
 	
 	
 	
+	/**
+	 * Read a sentence without adding any new words to the vocabulary. This is safe to call from 
+	 * several threads at once, as long as nothing else is adding words.
+	 * 
+	 * @param sentence the sentence to be read in
+	 * @return an array of the integers that represent the words in this sentence, leaving out words that are not in the vocabulary
+	 */
+	public static int[] readKnownSent(String sentence)
+	{
+		String [] words = getWords(sentence);
+		
+		int[] sent = new int[words.length];
+		int n = 0;
+		for(int i = 0; i < words.length; i++)
+		{
+			int w = TextUtil.getInstance().lookup(words[i]);
+			if(w != -1)
+			{
+				sent[n] = w;
+				n++;
+			}
+		}
+		
+		return Arrays.copyOf(sent, n);
+	}
+	
 	/**
 	 * 
 	 * @param w the original string from a sentence
@@ -153,6 +179,45 @@ public class TextUtil
 		}
 	}
 	
+	/**
+	 * 
+	 * @param w a token
+	 * @return the integer that is mapped to this type, or -1 if the type is not in the vocabulary
+	 */
+	public int lookup(String w)
+	{
+		Integer i = stringToInt.get(w);
+		if(i == null)
+			return -1;
+		else
+			return i;
+	}
+	
+	/**
+	 * Renumber the word types after the vocabulary has been pruned.
+	 * 
+	 * @param map the new id of each old word type, or -1 if the type was pruned
+	 * @param newTypes the number of word types that were kept
+	 */
+	public void renumber(int[] map, int newTypes)
+	{
+		Map<String, Integer> newStringToInt = new HashMap<String, Integer>();
+		Map<Integer, String> newIntToString = new HashMap<Integer, String>();
+		
+		for(int type = 0; type < map.length; type++)
+		{
+			if(map[type] != -1)
+			{
+				newStringToInt.put(intToString.get(type), map[type]);
+				newIntToString.put(map[type], intToString.get(type));
+			}
+		}
+		
+		stringToInt = newStringToInt;
+		intToString = newIntToString;
+		ntypes = newTypes;
+	}
+	
 	/**
 	 * 
 	 * @return the number of word types
@@ -0,0 +1,276 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds the most likely words of the topics of a model.
+ *
+ * With the same beta for every word, the order of the words in a topic is the order of their
+ * counts, so each topic is one pass over its counts with a heap of the n largest so far. The
+ * topics are independent of each other, so they are split between several threads.
+ *
+ * @author rebecca
+ *
+ */
+public class TopWords
+{
+	private Corpus corpus;
+	private int n;
+	private boolean docs; // also find the top words of every document topic
+
+
+	/**
+	 *
+	 * @param corpus the corpus, after the counts of the model have been saved into it
+	 * @param n how many words to find for each topic
+	 * @param docs true to also find the top words of the document topics
+	 */
+	public TopWords(Corpus corpus, int n, boolean docs)
+	{
+		this.corpus = corpus;
+		this.n = n;
+		this.docs = docs;
+	}
+
+	/**
+	 *
+	 * @param t a topic
+	 * @param n how many words to find
+	 * @return the types of the (at most) n words with the largest counts in the topic, largest first
+	 */
+	public static int[] top(final Topic t, int n)
+	{
+		return top(new Ranking() {
+			boolean counts(int type)
+			{
+				return t.getCount(type) > 0;
+			}
+
+			boolean below(int a, int b)
+			{
+				int ca = t.getCount(a);
+				int cb = t.getCount(b);
+				return ca < cb || (ca == cb && a > b);
+			}
+		}, n);
+	}
+
+	/**
+	 *
+	 * @param d a distribution
+	 * @param n how many words to find
+	 * @return the types of the (at most) n most likely words of the distribution, most likely first
+	 */
+	public static int[] top(final Distribution d, int n)
+	{
+		return top(new Ranking() {
+			boolean counts(int type)
+			{
+				return d.pw(type) > 0.0;
+			}
+
+			boolean below(int a, int b)
+			{
+				int c = Double.compare(d.pw(a), d.pw(b));
+				return c < 0 || (c == 0 && a > b);
+			}
+		}, n);
+	}
+
+	/**
+	 * The order of the words of a topic, for the heap.
+	 */
+	private static abstract class Ranking
+	{
+		/**
+		 * @return false if the word should be left out, because it never occurs
+		 */
+		abstract boolean counts(int type);
+
+		/**
+		 * @return true if word a ranks below word b; ties go to the lower type
+		 */
+		abstract boolean below(int a, int b);
+	}
+
+	/**
+	 * One pass over the types with a heap of the n largest so far, which keeps the smallest of
+	 * them on top.
+	 *
+	 * @return the (at most) n largest types, largest first
+	 */
+	private static int[] top(Ranking rank, int n)
+	{
+		int ntypes = TextUtil.getInstance().ntypes();
+		int[] heap = new int[Math.max(n, 0)];
+		int size = 0;
+
+		for(int type = 0; type < ntypes; type++)
+		{
+			if(!rank.counts(type))
+				continue;
+
+			if(size < n)
+			{
+				heap[size] = type;
+				up(heap, size, rank);
+				size++;
+			}
+			else if(n > 0 && rank.below(heap[0], type))
+			{
+				heap[0] = type;
+				down(heap, size, rank);
+			}
+		}
+
+		// take the smallest off the top until the heap is empty
+		int[] top = new int[size];
+		for(int i = size - 1; i >= 0; i--)
+		{
+			top[i] = heap[0];
+			heap[0] = heap[i];
+			down(heap, i, rank);
+		}
+
+		return top;
+	}
+
+	private static void up(int[] heap, int i, Ranking rank)
+	{
+		int type = heap[i];
+		while(i > 0)
+		{
+			int parent = (i - 1) / 2;
+			if(!rank.below(type, heap[parent]))
+				break;
+
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = type;
+	}
+
+	private static void down(int[] heap, int size, Ranking rank)
+	{
+		if(size == 0)
+			return;
+
+		int type = heap[0];
+		int i = 0;
+		while(2 * i + 1 < size)
+		{
+			int child = 2 * i + 1;
+			if(child + 1 < size && rank.below(heap[child + 1], heap[child]))
+				child++;
+			if(!rank.below(heap[child], type))
+				break;
+
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = type;
+	}
+
+	/**
+	 * List the topics to find the top words of, in the order of the corpus.
+	 */
+	private void topics(ArrayList<String> names, ArrayList<Topic> topics)
+	{
+		names.add("background");
+		topics.add(corpus.phib());
+		for(int ci = 0; ci < corpus.nclusters(); ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			names.add("cluster " + c.getName());
+			topics.add(c.phic());
+
+			if(docs)
+			{
+				for(int di = 0; di < c.ndocs(); di++)
+				{
+					names.add("cluster " + c.getName() + " document " + c.getDoc(di));
+					topics.add(c.getDoc(di).phid());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the top words of the background topic, every cluster topic and (if asked for) every
+	 * document topic.
+	 *
+	 * @param threads the number of topics to work on at the same time
+	 * @return the top words of each topic, in the order of the corpus: the background topic, then
+	 * each cluster topic followed by the topics of its documents
+	 */
+	public int[][] find(int threads)
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<Topic> topics = new ArrayList<Topic>();
+		topics(names, topics);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<int[]>> results = new ArrayList<Future<int[]>>();
+		for(final Topic t : topics)
+		{
+			results.add(pool.submit(new Callable<int[]>() {
+				public int[] call()
+				{
+					return top(t, n);
+				}
+			}));
+		}
+
+		// the names are only for the report, since two clusters or documents can have the same name
+		int[][] top = new int[topics.size()][];
+		try
+		{
+			for(int i = 0; i < top.length; i++)
+				top[i] = results.get(i).get();
+		}
+		catch(Exception e)
+		{
+			System.err.println("Error finding the top words:");
+			System.err.println(e.toString());
+			System.exit(1);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		return top;
+	}
+
+	/**
+	 * Find the top words of the topics and write them to a report: the name of each topic on
+	 * its own line, followed by one word, its count and its probability per line.
+	 *
+	 * @param f the report file
+	 * @param threads the number of topics to work on at the same time
+	 */
+	public void write(File f, int threads)
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<Topic> topics = new ArrayList<Topic>();
+		topics(names, topics);
+
+		int[][] top = find(threads);
+		TextUtil tu = TextUtil.getInstance();
+
+		StringBuilder report = new StringBuilder();
+		for(int i = 0; i < names.size(); i++)
+		{
+			Topic t = topics.get(i);
+			report.append(names.get(i)).append('\n');
+			for(int type : top[i])
+			{
+				double pw = t.getTotal() == 0 ? 0.0 : ((double)t.getCount(type)) / ((double)t.getTotal());
+				report.append(tu.getString(type)).append('\t').append(t.getCount(type)).append('\t').append(pw).append('\n');
+			}
+			report.append('\n');
+		}
+
+		FileUtil.writeTextFile(f, report.toString());
+	}
+}
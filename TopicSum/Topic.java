@@ -1,7 +1,10 @@
+import java.nio.*;
 
 public class Topic 
 {
-	private int [] typeCount;
+	private int [] typeCount; // the counts on the heap, or null if they are in a CountArena
+	private IntBuffer offHeapCount; // the counts off the heap, or null if they are on the heap
+	private int ntypes;
 	private int totalCount;
 	
 	public static final int BACKGROUND = 0;
@@ -11,20 +14,63 @@ public class Topic
 	
 	public Topic()
 	{	
-		typeCount = new int[TextUtil.getInstance().ntypes()];
+		ntypes = TextUtil.getInstance().ntypes();
+		
+		CountArena arena = CountArena.getInstance();
+		if(arena == null)
+			typeCount = new int[ntypes];
+		else
+			offHeapCount = arena.allocate(ntypes);
+		
 		totalCount = 0;
 	}
 	
 	public void decrementTypeCount(int type)
 	{
 		totalCount --;
-		typeCount[type]--;
+		if(typeCount != null)
+			typeCount[type]--;
+		else
+			offHeapCount.put(type, offHeapCount.get(type) - 1);
 	}
 	
 	public void incrementTypeCount(int type)
 	{
 		totalCount ++;
-		typeCount[type]++;
+		if(typeCount != null)
+			typeCount[type]++;
+		else
+			offHeapCount.put(type, offHeapCount.get(type) + 1);
+	}
+	
+	/**
+	 * Set the number of tokens of a type assigned to this topic. Types that were seen after 
+	 * this topic was made are ignored, the same way getCount returns 0 for them.
+	 * 
+	 * @param type the word type
+	 * @param count the new count
+	 */
+	public void setCount(int type, int count)
+	{
+		if(type >= ntypes)
+			return;
+		
+		totalCount += count - getCount(type);
+		if(typeCount != null)
+			typeCount[type] = count;
+		else
+			offHeapCount.put(type, count);
+	}
+	
+	/**
+	 * Make the counts of this topic the same as the counts of another topic.
+	 * 
+	 * @param t the topic to copy the counts from
+	 */
+	public void setCounts(Topic t)
+	{
+		for(int type = 0; type < ntypes; type++)
+			setCount(type, t.getCount(type));
 	}
 	
 	/**
@@ -34,10 +80,13 @@ public class Topic
 	 */
 	public int getCount(int type)
 	{
-		if(type >= typeCount.length)
+		if(type >= ntypes)
 			return 0;
 		
-		return typeCount[type];
+		if(typeCount != null)
+			return typeCount[type];
+		else
+			return offHeapCount.get(type);
 	}
 	
 	
@@ -0,0 +1,186 @@
+import java.util.*;
+
+/**
+ * Packed storage for the topic assigned to every token in the corpus.
+ *
+ * TopicSum only ever assigns one of the four constants in Topic, so each token only needs
+ * 2 bits instead of an int. Each sentence gets a slice of the store when it is read in, and
+ * reads and writes its topics through Sentence.getTopic and Sentence.setTopic.
+ *
+ * For HierSum, content subtopic k is stored as Topic.CONTENTSPECIFIC + k, and the store is
+ * widened (4, 8, ... bits per token) when the subtopics are set up.
+ *
+ * get and set are not synchronized, and several tokens share each long, so a store must only
+ * ever have one thread setting topics in it (each chain of MultiChainSampler has its own store
+ * for this reason). allocate, clear and ensureTopics can replace the array, so they must not be
+ * called while a sampler is using the store: the store is sized while the corpus is read, and
+ * only sampled after that.
+ *
+ * The store that getInstance returns is shared by every sentence read in with the default
+ * constructor, and it only grows: nothing is freed until clear is called (VocabPruner does this
+ * before reading the sentences again). A program that reads many separate corpora, like the
+ * Server, should give each one its own store (see CorpusBuilder.topicStore).
+ *
+ * @author rebecca
+ *
+ */
+public class TopicStore
+{
+	private static TopicStore ref;
+
+	private long[] words; // the packed topics, several tokens per long
+	private int size; // the number of tokens allocated so far
+
+	private int bits; // bits per token, always a power of two so that tokens never straddle two longs
+	private int shift; // log2 of the number of tokens per long
+	private long mask;
+
+
+	/**
+	 *
+	 * @param bits the number of bits to use for each token (1, 2, 4, 8, 16 or 32)
+	 */
+	public TopicStore(int bits)
+	{
+		this(bits, 0);
+	}
+
+	/**
+	 * Make a store that already has room for size tokens, all assigned to topic 0. This is
+	 * useful for keeping a second set of assignments with the same layout as another store.
+	 *
+	 * @param bits the number of bits to use for each token (1, 2, 4, 8, 16 or 32)
+	 * @param size the number of tokens
+	 */
+	public TopicStore(int bits, int size)
+	{
+		setBits(bits);
+		this.size = size;
+		words = new long[Math.max(16, wordsFor(size))];
+	}
+
+	/**
+	 *
+	 * @return the store used by the sentences of the corpus
+	 */
+	public static TopicStore getInstance()
+	{
+		if(ref == null)
+			ref = new TopicStore(bitsFor(Topic.CONTENTSPECIFIC + 1));
+
+		return ref;
+	}
+
+	/**
+	 *
+	 * @param ntopics the number of different topics that can be assigned
+	 * @return the number of bits per token needed to store them
+	 */
+	public static int bitsFor(int ntopics)
+	{
+		int bits = 1;
+		while(bits < 32 && (1L << bits) < ntopics)
+			bits *= 2;
+
+		return bits;
+	}
+
+	private void setBits(int bits)
+	{
+		this.bits = bits;
+		shift = Integer.numberOfTrailingZeros(64 / bits);
+		mask = (1L << bits) - 1;
+	}
+
+	private int wordsFor(int ntokens)
+	{
+		return (int)((((long)ntokens) + (64 / bits) - 1) >>> shift);
+	}
+
+	/**
+	 * Reserve space for the topics of ntokens tokens. All the new tokens are assigned to topic 0.
+	 *
+	 * @param ntokens the number of tokens
+	 * @return the index of the first token
+	 */
+	public synchronized int allocate(int ntokens)
+	{
+		int start = size;
+
+		if(wordsFor(size + ntokens) > words.length)
+			words = Arrays.copyOf(words, Math.max(words.length * 2, wordsFor(size + ntokens)));
+
+		size += ntokens;
+		return start;
+	}
+
+	/**
+	 * Forget all of the allocated tokens. Sentences that were using this store have to allocate again.
+	 */
+	public synchronized void clear()
+	{
+		Arrays.fill(words, 0);
+		size = 0;
+	}
+
+	/**
+	 * Make sure that the store can hold ntopics different topics, repacking the tokens with more bits
+	 * per token if it cannot.
+	 *
+	 * @param ntopics the number of different topics that can be assigned
+	 */
+	public synchronized void ensureTopics(int ntopics)
+	{
+		int newBits = bitsFor(ntopics);
+		if(newBits <= bits)
+			return;
+
+		TopicStore wider = new TopicStore(newBits, size);
+		for(int i = 0; i < size; i++)
+			wider.set(i, get(i));
+
+		setBits(newBits);
+		words = wider.words;
+	}
+
+	/**
+	 *
+	 * @param i the index of the token
+	 * @return the topic assigned to the token
+	 */
+	public int get(int i)
+	{
+		int pos = (i & ((1 << shift) - 1)) * bits;
+		return (int)((words[i >>> shift] >>> pos) & mask);
+	}
+
+	/**
+	 *
+	 * @param i the index of the token
+	 * @param topic the new topic assigned to the token
+	 */
+	public void set(int i, int topic)
+	{
+		int pos = (i & ((1 << shift) - 1)) * bits;
+		int w = i >>> shift;
+		words[w] = (words[w] & ~(mask << pos)) | ((((long)topic) & mask) << pos);
+	}
+
+	/**
+	 *
+	 * @return the number of tokens allocated
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 *
+	 * @return the number of bits used for each token
+	 */
+	public int bits()
+	{
+		return bits;
+	}
+}
@@ -0,0 +1,156 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Removes rare and overly common word types from a corpus after it has been read in.
+ *
+ * Most of the loops in the sampler and the summarizer are over every word type (kldiv,
+ * Sampler.getDist, the log-likelihood), and the vocabulary of the DUC data is full of
+ * hapaxes and OCR junk. Pruned types are dropped from the sentences and the remaining
+ * types are renumbered densely, so every vocabulary-sized array shrinks with them.
+ *
+ * This has to run before the Sampler is built, since the sampler sizes its topics by
+ * the number of types.
+ *
+ * @author rebecca
+ *
+ */
+public class VocabPruner
+{
+	private int minCount; // types that occur fewer times than this are removed
+	private double maxDocFreq; // types that occur in more than this fraction of documents are removed
+	private Set<String> stopwords;
+
+	/**
+	 *
+	 * @param minCount the fewest times a type can occur in the corpus and still be kept
+	 * @param maxDocFreq the largest fraction of documents a type can occur in and still be kept (1.0 keeps everything)
+	 */
+	public VocabPruner(int minCount, double maxDocFreq)
+	{
+		this.minCount = minCount;
+		this.maxDocFreq = maxDocFreq;
+		stopwords = new HashSet<String>();
+	}
+
+	/**
+	 * Read a list of stopwords, one word per line. The words are cleaned up the same way
+	 * as the words in the sentences, so the list does not need to be lowercased.
+	 *
+	 * @param f the stopword file
+	 */
+	public void readStopwords(File f)
+	{
+		FileUtil stopFile = new FileUtil(f);
+		while(stopFile.ready())
+		{
+			for(String w : TextUtil.getWords(stopFile.readLine()))
+				stopwords.add(w);
+		}
+		stopFile.closeFile();
+	}
+
+	/**
+	 * Prune the vocabulary of the corpus. The sentences are rewritten with the new type ids
+	 * and all of the corpus topics are rebuilt at the new vocabulary size.
+	 *
+	 * @param corpus the corpus to prune
+	 */
+	public void prune(Corpus corpus)
+	{
+		TextUtil tu = TextUtil.getInstance();
+		int oldTypes = tu.ntypes();
+
+		// count the occurrences and the document frequency of every type
+		int[] count = new int[oldTypes];
+		int[] docFreq = new int[oldTypes];
+		int[] lastDoc = new int[oldTypes]; // the last document that each type was seen in, so we only count it once per document
+		Arrays.fill(lastDoc, -1);
+
+		int ndocs = 0;
+		long oldTokens = 0;
+		for(int ci = 0; ci < corpus.nclusters(); ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			for(int di = 0; di < c.ndocs(); di++)
+			{
+				Document d = c.getDoc(di);
+				for(int si = 0; si < d.nsents(); si++)
+				{
+					Sentence s = d.getSent(si);
+					for(int wi = 0; wi < s.nwords(); wi++)
+					{
+						int type = s.getType(wi);
+						count[type]++;
+						if(lastDoc[type] != ndocs)
+						{
+							lastDoc[type] = ndocs;
+							docFreq[type]++;
+						}
+					}
+					oldTokens += s.nwords();
+				}
+				ndocs++;
+			}
+		}
+
+		// decide which types to keep, and give them new dense ids
+		int[] map = new int[oldTypes];
+		int newTypes = 0;
+		double maxDocs = maxDocFreq * (double)ndocs;
+		for(int type = 0; type < oldTypes; type++)
+		{
+			if(count[type] < minCount || (double)docFreq[type] > maxDocs || stopwords.contains(tu.getString(type)))
+				map[type] = -1;
+			else
+			{
+				map[type] = newTypes;
+				newTypes++;
+			}
+		}
+
+		// rewrite the sentences, packing their topics into the store from the start
+		TopicStore.getInstance().clear();
+		long newTokens = 0;
+		for(int ci = 0; ci < corpus.nclusters(); ci++)
+		{
+			Cluster c = corpus.getCluster(ci);
+			for(int di = 0; di < c.ndocs(); di++)
+			{
+				Document d = c.getDoc(di);
+				for(int si = 0; si < d.nsents(); si++)
+				{
+					d.getSent(si).remapTypes(map);
+					newTokens += d.getSent(si).nwords();
+				}
+			}
+		}
+
+		tu.renumber(map, newTypes);
+		if(CountArena.getInstance() != null) // the old topics are thrown away, so their counts can be used again
+			CountArena.getInstance().reset();
+		corpus.resetTopics();
+
+		report(corpus, ndocs, oldTypes, newTypes, oldTokens, newTokens);
+	}
+
+	/**
+	 * Print how much the vocabulary and the memory used by the model shrank.
+	 */
+	private void report(Corpus corpus, int ndocs, int oldTypes, int newTypes, long oldTokens, long newTokens)
+	{
+		// every cluster and document has a topic in the corpus and another in the sampler, plus the background topics
+		long ntopics = 2 * (1 + corpus.nclusters() + ndocs);
+		// each topic holds an int per type, and the summarizer builds a few double distributions per cluster
+		long bytesPerType = 4 * ntopics + 8 * 3;
+		// each token has an int type and a packed topic
+		double bytesPerToken = 4.0 + ((double)TopicStore.getInstance().bits()) / 8.0;
+
+		double oldMB = ((double)(bytesPerType * oldTypes) + bytesPerToken * (double)oldTokens) / (1024.0 * 1024.0);
+		double newMB = ((double)(bytesPerType * newTypes) + bytesPerToken * (double)newTokens) / (1024.0 * 1024.0);
+
+		System.out.println("Pruned vocabulary from " + oldTypes + " to " + newTypes + " types (" + (oldTypes - newTypes) + " removed)");
+		System.out.println("Pruned tokens from " + oldTokens + " to " + newTokens + " (" + (oldTokens - newTokens) + " removed)");
+		System.out.println(String.format("Estimated model memory: %.1f MB -> %.1f MB", oldMB, newMB));
+	}
+}